@@ -0,0 +1,261 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Concurrency stress check for ConcurrentLeaderboard, runnable without JMH.
+ *
+ * Writer threads add entries (singly and in batches) on top of a mapped base
+ * board while reader threads take snapshots and run rank and range queries.
+ * Every entry has a unique name and the scores come from seeded generators,
+ * so the expected board is known up front whatever the interleaving. Readers
+ * check each snapshot (versions and sizes never go back, the whole top is in
+ * order and holds only entries that were added, with their own scores), and
+ * the range pages and ranks they query along the way; at
+ * the end the full range(0, n) must equal the sorted multiset of everything
+ * added, and the final snapshot must match its head. Prints OK, or every
+ * failure and exits with status 1.
+ *
+ * Usage: LeaderboardStress [rounds] [writers] [readers] [entries per writer]
+ */
+public final class LeaderboardStress
+{
+    private static final long SEED = 20L;
+    private static final int BASE_ENTRIES = 5_000;
+    private static final int MAX_SCORE = 1_000; // small, so ties are everywhere
+    private static final int BATCH = 8;
+
+    private static final Comparator<EscapeRoomGame.LeaderboardEntry> BY_SCORE_THEN_NAME =
+            Comparator.<EscapeRoomGame.LeaderboardEntry>comparingInt(e -> -e.score).thenComparing(e -> e.name);
+
+    private LeaderboardStress() {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int perWriter = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+        ArrayList<String> failures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds && failures.isEmpty(); round++) {
+            failures.addAll(runRound(SEED + round, writers, readers, perWriter));
+        }
+        if (!failures.isEmpty()) {
+            for (String f : failures) {
+                System.out.println("FAIL: " + f);
+            }
+            System.exit(1);
+        }
+        System.out.printf("OK: %d rounds, %d writers x %d entries, %d readers, %.1f s%n", rounds, writers,
+                perWriter, readers, (System.nanoTime() - start) / 1e9);
+    }
+
+    /** One run on a fresh board; returns the failures found, empty when it passed. */
+    static List<String> runRound(long seed, int writers, int readers, int perWriter) throws Exception
+    {
+        // Inputs are fixed before any thread starts
+        ArrayList<EscapeRoomGame.LeaderboardEntry> base = entries("base", new SplittableRandom(seed), BASE_ENTRIES);
+        base.sort(Comparator.comparingInt(e -> -e.score));
+        ArrayList<ArrayList<EscapeRoomGame.LeaderboardEntry>> perThread = new ArrayList<>();
+        HashMap<String, Integer> known = new HashMap<>();
+        for (EscapeRoomGame.LeaderboardEntry e : base) {
+            known.put(e.name, e.score);
+        }
+        for (int w = 0; w < writers; w++) {
+            ArrayList<EscapeRoomGame.LeaderboardEntry> mine = entries("w" + w, new SplittableRandom(seed * 31 + w), perWriter);
+            perThread.add(mine);
+            for (EscapeRoomGame.LeaderboardEntry e : mine) {
+                known.put(e.name, e.score);
+            }
+        }
+        int total = known.size();
+
+        ConcurrentLeaderboard board = new ConcurrentLeaderboard();
+        Path file = Files.createTempFile("leaderboard-stress", ".bin");
+        try {
+            MappedLeaderboard.write(file, MappedLeaderboard.empty(), base, 0);
+            board.reset(MappedLeaderboard.open(file), new ArrayList<>());
+
+            ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+            CountDownLatch go = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            ArrayList<Thread> writerThreads = new ArrayList<>();
+            ArrayList<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                List<EscapeRoomGame.LeaderboardEntry> mine = perThread.get(w);
+                Thread t = new Thread(() -> write(board, mine, go, failures), "stress-writer-" + w);
+                writerThreads.add(t);
+                threads.add(t);
+            }
+            for (int r = 0; r < readers; r++) {
+                threads.add(new Thread(() -> read(board, known, total, go, writing, failures), "stress-reader-" + r));
+            }
+            for (Thread t : threads) {
+                t.start();
+            }
+            go.countDown();
+            for (Thread t : writerThreads) {
+                t.join();
+            }
+            writing.set(false);
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            ArrayList<String> result = new ArrayList<>(failures);
+            if (result.isEmpty()) {
+                checkFinal(board, base, perThread, total, result);
+            }
+            return result;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Unique names, seeded scores
+    private static ArrayList<EscapeRoomGame.LeaderboardEntry> entries(String prefix, SplittableRandom random, int n)
+    {
+        ArrayList<EscapeRoomGame.LeaderboardEntry> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(new EscapeRoomGame.LeaderboardEntry(prefix + "-" + i, random.nextInt(MAX_SCORE)));
+        }
+        return out;
+    }
+
+    private static void write(ConcurrentLeaderboard board, List<EscapeRoomGame.LeaderboardEntry> entries,
+                              CountDownLatch go, ConcurrentLinkedQueue<String> failures)
+    {
+        try {
+            go.await();
+            int i = 0;
+            while (i < entries.size()) {
+                // Every fourth step goes in as a batch
+                if ((i / BATCH) % 4 == 3) {
+                    int end = Math.min(entries.size(), i + BATCH);
+                    board.addAll(entries.subList(i, end));
+                    i = end;
+                } else {
+                    board.add(entries.get(i++));
+                }
+            }
+        } catch (Throwable t) {
+            failures.add(Thread.currentThread().getName() + " threw " + t);
+        }
+    }
+
+    private static void read(ConcurrentLeaderboard board, HashMap<String, Integer> known, int total,
+                             CountDownLatch go, AtomicBoolean writing, ConcurrentLinkedQueue<String> failures)
+    {
+        String me = Thread.currentThread().getName();
+        try {
+            go.await();
+            long lastVersion = -1;
+            int lastSize = -1;
+            int lastRank = 0;
+            int reads = 0;
+            // At least one read after the writers finish, so the last snapshot is checked too
+            boolean last = false;
+            while (failures.isEmpty() && !last) {
+                last = !writing.get();
+                ConcurrentLeaderboard.Snapshot snapshot = board.snapshot();
+                if (snapshot.version() < lastVersion) {
+                    failures.add(me + ": version went back from " + lastVersion + " to " + snapshot.version());
+                }
+                if (snapshot.size() < lastSize || snapshot.size() > total) {
+                    failures.add(me + ": size " + snapshot.size() + " after " + lastSize + ", of " + total);
+                }
+                lastVersion = snapshot.version();
+                lastSize = snapshot.size();
+                checkEntries(me + " snapshot", snapshot.top(ConcurrentLeaderboard.SNAPSHOT_SIZE), known, failures);
+
+                // Now and then the locking queries too
+                if (++reads % 64 == 0) {
+                    int from = reads % Math.max(1, lastSize);
+                    List<EscapeRoomGame.LeaderboardEntry> page = board.range(from, 50);
+                    checkEntries(me + " range(" + from + ")", page, known, failures);
+                    // Entries are only ever added, so a score's rank can only fall behind
+                    int rank = board.rankOf(MAX_SCORE / 2);
+                    if (rank < lastRank) {
+                        failures.add(me + ": rankOf(" + MAX_SCORE / 2 + ") went from " + lastRank + " to " + rank);
+                    }
+                    lastRank = rank;
+                }
+            }
+        } catch (Throwable t) {
+            failures.add(me + " threw " + t);
+        }
+    }
+
+    // In order, and every entry is one that was added, with its own score
+    private static void checkEntries(String what, List<EscapeRoomGame.LeaderboardEntry> entries,
+                                     HashMap<String, Integer> known, ConcurrentLinkedQueue<String> failures)
+    {
+        for (int i = 0; i < entries.size(); i++) {
+            EscapeRoomGame.LeaderboardEntry e = entries.get(i);
+            Integer score = known.get(e.name);
+            if (score == null || score != e.score) {
+                failures.add(what + ": unknown entry " + e.name + " " + e.score + " at " + i);
+                return;
+            }
+            if (i > 0 && entries.get(i - 1).score < e.score) {
+                failures.add(what + ": out of order at " + i);
+                return;
+            }
+        }
+    }
+
+    private static void checkFinal(ConcurrentLeaderboard board, List<EscapeRoomGame.LeaderboardEntry> base,
+                                   List<? extends List<EscapeRoomGame.LeaderboardEntry>> added, int total,
+                                   List<String> failures)
+    {
+        List<EscapeRoomGame.LeaderboardEntry> full = board.range(0, total + 1);
+        if (full.size() != total) {
+            failures.add("range(0, n) has " + full.size() + " entries, " + total + " were added");
+        }
+        for (int i = 1; i < full.size(); i++) {
+            if (full.get(i - 1).score < full.get(i).score) {
+                failures.add("final board out of order at " + i);
+                break;
+            }
+        }
+
+        // Same multiset: sort both the same way and compare entry by entry
+        ArrayList<EscapeRoomGame.LeaderboardEntry> expected = new ArrayList<>(base);
+        for (List<EscapeRoomGame.LeaderboardEntry> mine : added) {
+            expected.addAll(mine);
+        }
+        ArrayList<EscapeRoomGame.LeaderboardEntry> actual = new ArrayList<>(full);
+        expected.sort(BY_SCORE_THEN_NAME);
+        actual.sort(BY_SCORE_THEN_NAME);
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            EscapeRoomGame.LeaderboardEntry want = expected.get(i), got = actual.get(i);
+            if (!want.name.equals(got.name) || want.score != got.score) {
+                failures.add("final board differs at sorted position " + i + ": expected " + want.name + " "
+                        + want.score + ", found " + got.name + " " + got.score);
+                break;
+            }
+        }
+
+        ConcurrentLeaderboard.Snapshot snapshot = board.snapshot();
+        if (snapshot.size() != total) {
+            failures.add("final snapshot size " + snapshot.size() + ", " + total + " were added");
+        }
+        List<EscapeRoomGame.LeaderboardEntry> top = snapshot.top(ConcurrentLeaderboard.SNAPSHOT_SIZE);
+        for (int i = 0; i < top.size(); i++) {
+            if (i >= full.size() || !top.get(i).name.equals(full.get(i).name) || top.get(i).score != full.get(i).score) {
+                failures.add("final snapshot differs from range(0, n) at " + i);
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.Random;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Reproducible crowded scenes for benchmarks and stress runs.
+ *
+ * Everything is placed so a scene stays "alive" for as long as it is ticked:
+ * the player is shielded and parked at the spawn point, enemies patrol the floor,
+ * projectiles hover just above them without touching, particles never expire and
+ * extra platforms sit to the right of the player. That way repeated update() calls
+ * keep doing the same amount of work instead of the scene emptying itself out.
+ *
+ * Every scene is returned with the enemy broadphase grid already built, so the
+ * projectile pass can be run on its own: enemies only move (and the grid is only
+ * rebuilt) in updateEnemies(), so the grid stays valid between its calls.
+ */
+public final class StressScenarios
+{
+    private static final long SEED = 42L;
+
+    private StressScenarios() {
+    }
+
+    /**
+     * One of the built-in levels, with a shielded player so it never ends.
+     */
+    public static EscapeRoomGame builtInLevel(int level, boolean withResources)
+    {
+        EscapeRoomGame game = newGame(withResources);
+        game.level = level;
+        game.initLevel();
+        shieldPlayer(game);
+        game.rebuildEnemyGrid();
+        return game;
+    }
+
+    /**
+     * Level 1 layout plus the requested number of extra enemies, projectiles,
+     * particles and platforms.
+     */
+    public static EscapeRoomGame crowded(int enemies, int projectiles, int particles, int platforms,
+                                         boolean withResources)
+    {
+        EscapeRoomGame game = newGame(withResources);
+        shieldPlayer(game);
+        Random random = new Random(SEED);
+        int w = EscapeRoomGame.WIDTH;
+        int h = EscapeRoomGame.HEIGHT;
+
+        for (int i = 0; i < enemies; i++) {
+            double x = 60 + random.nextDouble() * (w - 150);
+            EscapeRoomGame.Enemy enemy = game.new Enemy(x, h - 100, Element.NORMAL);
+            if (random.nextBoolean()) {
+                enemy.vx = -enemy.vx;
+            }
+            game.enemies.add(enemy);
+        }
+
+        // Enemy centres sit on y = h - 85; a projectile exactly the hit range above that line
+        // shares broadphase cells with the enemies below it but never counts as a hit
+        double projectileY = h - 100 + 15 - 20;
+        for (int i = 0; i < projectiles; i++) {
+            double x = 20 + random.nextDouble() * (w - 40);
+            game.projectiles.add(game.new Projectile(x, projectileY, 0, 0, Element.FIRE, 1));
+        }
+
+        // Float.MAX_VALUE minus one tick is still Float.MAX_VALUE, so these never expire
+        if (particles > game.particles.capacity()) {
+            game.resizeParticleBudget(particles);
+        }
+        int red = PowerColor.RED.ordinal();
+        for (int i = 0; i < particles; i++) {
+            game.particles.spawn(random.nextFloat() * w, random.nextFloat() * h,
+                    random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1, Float.MAX_VALUE, red);
+        }
+
+        // Player stays at x = 100, so these are all near misses for the collision loop
+        for (int i = 0; i < platforms; i++) {
+            int x = 300 + random.nextInt(w - 400);
+            int y = 60 + random.nextInt(h - 200);
+            game.platforms.add(game.new Platform(x, y, 60, 20, Color.rgb(100, 100, 100)));
+        }
+        game.rebuildPlatformIndex();
+        game.rebuildEnemyGrid();
+        return game;
+    }
+
+    /**
+     * Stress level for the collision broadphase: enemies patrol in rows spread
+     * over the whole screen and projectiles hover between the rows. Every
+     * projectile shares grid cells with enemies but sits just out of hit range,
+     * so nothing is consumed and each tick does the full amount of work.
+     */
+    public static EscapeRoomGame swarm(int enemies, int projectiles, boolean withResources)
+    {
+        EscapeRoomGame game = newGame(withResources);
+        shieldPlayer(game);
+        game.enemies.clear();
+        Random random = new Random(SEED);
+        int w = EscapeRoomGame.WIDTH;
+        int rowGap = 60;
+        int rows = (EscapeRoomGame.HEIGHT - 2 * rowGap) / rowGap;
+
+        // Enemy centres sit on rowGap lines; projectiles half a gap (30px) off, outside the 20px hit range
+        for (int i = 0; i < enemies; i++) {
+            double y = rowGap * (1 + random.nextInt(rows)) - 15;
+            EscapeRoomGame.Enemy enemy = game.new Enemy(60 + random.nextDouble() * (w - 150), y, Element.NORMAL);
+            if (random.nextBoolean()) {
+                enemy.vx = -enemy.vx;
+            }
+            game.enemies.add(enemy);
+        }
+        for (int i = 0; i < projectiles; i++) {
+            double y = rowGap * (1 + random.nextInt(rows)) + rowGap / 2.0;
+            game.projectiles.add(game.new Projectile(20 + random.nextDouble() * (w - 40), y, 0, 0, Element.ICE, 1));
+        }
+        game.rebuildEnemyGrid();
+        return game;
+    }
+
+    /** Both collision passes: enemies against the player, projectiles against enemies. */
+    public static void updateCollisions(EscapeRoomGame game)
+    {
+        game.updateEnemies();
+        game.updateProjectiles();
+    }
+
+    /** The player-vs-platform collision loop on its own. */
+    public static void updatePlayerAgainstPlatforms(EscapeRoomGame game)
+    {
+        game.player.update(game.solidPlatforms);
+    }
+
+    /**
+     * The projectile movement and projectile-vs-enemy loop on its own, against
+     * the enemy grid as last built.
+     */
+    public static void updateProjectiles(EscapeRoomGame game)
+    {
+        game.updateProjectiles();
+    }
+
+    private static EscapeRoomGame newGame(boolean withResources)
+    {
+        return withResources ? new EscapeRoomGame() : EscapeRoomGame.headless();
+    }
+
+    private static void shieldPlayer(EscapeRoomGame game)
+    {
+        game.player.shieldTimer = Integer.MAX_VALUE;
+        game.player.hasShield = true;
+    }
+}
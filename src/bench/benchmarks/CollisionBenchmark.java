@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-tick collision cost on the swarm stress level: enemies against the player
+ * and projectiles against enemies.
+ *
+ * With the grid broadphase the time per op should grow about linearly along
+ * either axis (double the projectiles, double the time), where a brute-force pair
+ * test grows with the product. The screen does not grow with the population,
+ * so along the enemy axis part of the growth is real: denser enemies mean more
+ * genuinely nearby pairs to test.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark
+{
+    @Param({"200", "400", "800"})
+    public int enemies;
+
+    @Param({"1000", "2000", "4000", "8000"})
+    public int projectiles;
+
+    private Object game;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        game = GameBridge.swarm(enemies, projectiles);
+    }
+
+    @Benchmark
+    public void collisions() throws Throwable
+    {
+        GameBridge.updateCollisions(game);
+    }
+}
@@ -0,0 +1,189 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+import javafx.scene.canvas.GraphicsContext;
+
+/**
+ * Entry points into the game for the benchmarks.
+ *
+ * The game lives in the unnamed package, which Java code in a named package
+ * cannot import, and JMH refuses benchmark classes in the unnamed package. So the
+ * benchmarks reach the game through method handles resolved once at class load;
+ * static final handles are constant-folded by the JIT and cost next to nothing.
+ */
+final class GameBridge
+{
+    private static final MethodHandle BUILT_IN_LEVEL;
+    private static final MethodHandle CROWDED;
+    private static final MethodHandle SWARM;
+    private static final MethodHandle UPDATE;
+    private static final MethodHandle RENDER;
+    private static final MethodHandle RENDER_LAYERS;
+    private static final MethodHandle UPDATE_PLAYER;
+    private static final MethodHandle UPDATE_PROJECTILES;
+    private static final MethodHandle UPDATE_COLLISIONS;
+    private static final MethodHandle NEW_LEADERBOARD;
+    private static final MethodHandle LEADERBOARD_ADD;
+    private static final MethodHandle LEADERBOARD_SNAPSHOT;
+    private static final MethodHandle SNAPSHOT_TOP;
+    private static final MethodHandle SNAPSHOT_SIZE;
+    private static final MethodHandle SNAPSHOT_VERSION;
+    private static final MethodHandle NEW_ENTRY;
+    private static final MethodHandle ENTRY_SCORE;
+
+    static {
+        try {
+            Class<?> game = Class.forName("EscapeRoomGame");
+            Class<?> scenarios = Class.forName("StressScenarios");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodType onGame = MethodType.methodType(void.class, Object.class);
+
+            BUILT_IN_LEVEL = lookup.findStatic(scenarios, "builtInLevel",
+                    MethodType.methodType(game, int.class, boolean.class))
+                    .asType(MethodType.methodType(Object.class, int.class, boolean.class));
+            CROWDED = lookup.findStatic(scenarios, "crowded",
+                    MethodType.methodType(game, int.class, int.class, int.class, int.class, boolean.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class, int.class, int.class, boolean.class));
+            SWARM = lookup.findStatic(scenarios, "swarm",
+                    MethodType.methodType(game, int.class, int.class, boolean.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class, boolean.class));
+            UPDATE = lookup.findVirtual(game, "update", MethodType.methodType(void.class)).asType(onGame);
+            RENDER = lookup.findVirtual(game, "render", MethodType.methodType(void.class, GraphicsContext.class))
+                    .asType(MethodType.methodType(void.class, Object.class, GraphicsContext.class));
+            RENDER_LAYERS = lookup.findVirtual(game, "render", MethodType.methodType(void.class,
+                    GraphicsContext.class, GraphicsContext.class, GraphicsContext.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class,
+                            GraphicsContext.class, GraphicsContext.class, GraphicsContext.class, double.class));
+            UPDATE_PLAYER = lookup.findStatic(scenarios, "updatePlayerAgainstPlatforms",
+                    MethodType.methodType(void.class, game)).asType(onGame);
+            UPDATE_PROJECTILES = lookup.findStatic(scenarios, "updateProjectiles",
+                    MethodType.methodType(void.class, game)).asType(onGame);
+            UPDATE_COLLISIONS = lookup.findStatic(scenarios, "updateCollisions",
+                    MethodType.methodType(void.class, game)).asType(onGame);
+
+            Class<?> board = Class.forName("ConcurrentLeaderboard");
+            Class<?> snapshot = Class.forName("ConcurrentLeaderboard$Snapshot");
+            Class<?> entry = Class.forName("EscapeRoomGame$LeaderboardEntry");
+            NEW_LEADERBOARD = lookup.findConstructor(board, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            LEADERBOARD_ADD = lookup.findVirtual(board, "add", MethodType.methodType(void.class, entry))
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            LEADERBOARD_SNAPSHOT = lookup.findVirtual(board, "snapshot", MethodType.methodType(snapshot))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            SNAPSHOT_TOP = lookup.findVirtual(snapshot, "top", MethodType.methodType(List.class, int.class))
+                    .asType(MethodType.methodType(List.class, Object.class, int.class));
+            SNAPSHOT_SIZE = lookup.findVirtual(snapshot, "size", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+            SNAPSHOT_VERSION = lookup.findVirtual(snapshot, "version", MethodType.methodType(long.class))
+                    .asType(MethodType.methodType(long.class, Object.class));
+            NEW_ENTRY = lookup.findConstructor(entry, MethodType.methodType(void.class, String.class, int.class))
+                    .asType(MethodType.methodType(Object.class, String.class, int.class));
+            ENTRY_SCORE = lookup.findGetter(entry, "score", int.class)
+                    .asType(MethodType.methodType(int.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private GameBridge() {
+    }
+
+    /**
+     * Builds the scene for a benchmark scale parameter: "levelN" for a built-in
+     * level, or an entity count that is applied to every kind named in counts
+     * ("e" enemies, "p" projectiles, "x" particles, "f" platforms).
+     */
+    static Object scenario(String scale, String counts, boolean withResources) throws Throwable
+    {
+        if (scale.startsWith("level")) {
+            int level = Integer.parseInt(scale.substring("level".length()));
+            return (Object) BUILT_IN_LEVEL.invokeExact(level, withResources);
+        }
+        int n = Integer.parseInt(scale);
+        int enemies = counts.indexOf('e') >= 0 ? n : 0;
+        int projectiles = counts.indexOf('p') >= 0 ? n : 0;
+        int particles = counts.indexOf('x') >= 0 ? n : 0;
+        int platforms = counts.indexOf('f') >= 0 ? n : 0;
+        return (Object) CROWDED.invokeExact(enemies, projectiles, particles, platforms, withResources);
+    }
+
+    static Object swarm(int enemies, int projectiles) throws Throwable
+    {
+        return (Object) SWARM.invokeExact(enemies, projectiles, false);
+    }
+
+    static void update(Object game) throws Throwable
+    {
+        UPDATE.invokeExact(game);
+    }
+
+    static void render(Object game, GraphicsContext gc) throws Throwable
+    {
+        RENDER.invokeExact(game, gc);
+    }
+
+    static void renderLayers(Object game, GraphicsContext staticGc, GraphicsContext dynamicGc,
+            GraphicsContext hudGc) throws Throwable
+    {
+        RENDER_LAYERS.invokeExact(game, staticGc, dynamicGc, hudGc, 1.0);
+    }
+
+    static void updatePlayerAgainstPlatforms(Object game) throws Throwable
+    {
+        UPDATE_PLAYER.invokeExact(game);
+    }
+
+    static void updateProjectiles(Object game) throws Throwable
+    {
+        UPDATE_PROJECTILES.invokeExact(game);
+    }
+
+    static void updateCollisions(Object game) throws Throwable
+    {
+        UPDATE_COLLISIONS.invokeExact(game);
+    }
+
+    static Object newLeaderboard() throws Throwable
+    {
+        return (Object) NEW_LEADERBOARD.invokeExact();
+    }
+
+    static Object leaderboardEntry(String name, int score) throws Throwable
+    {
+        return (Object) NEW_ENTRY.invokeExact(name, score);
+    }
+
+    static int score(Object entry) throws Throwable
+    {
+        return (int) ENTRY_SCORE.invokeExact(entry);
+    }
+
+    static void addScore(Object leaderboard, Object entry) throws Throwable
+    {
+        LEADERBOARD_ADD.invokeExact(leaderboard, entry);
+    }
+
+    static Object leaderboardSnapshot(Object leaderboard) throws Throwable
+    {
+        return (Object) LEADERBOARD_SNAPSHOT.invokeExact(leaderboard);
+    }
+
+    static List<?> snapshotTop(Object snapshot, int max) throws Throwable
+    {
+        return (List<?>) SNAPSHOT_TOP.invokeExact(snapshot, max);
+    }
+
+    static int snapshotSize(Object snapshot) throws Throwable
+    {
+        return (int) SNAPSHOT_SIZE.invokeExact(snapshot);
+    }
+
+    static long snapshotVersion(Object snapshot) throws Throwable
+    {
+        return (long) SNAPSHOT_VERSION.invokeExact(snapshot);
+    }
+}
@@ -0,0 +1,128 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of ConcurrentLeaderboard under contention: writer threads add
+ * scores while reader threads take snapshots, all on one shared board.
+ *
+ * Only sanity-checks what it measures (snapshots in order, versions never
+ * going back, the final size); the full correctness check, comparing the
+ * whole board against everything added, is LeaderboardStress, which runs
+ * without JMH.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardBenchmark
+{
+    @State(Scope.Group)
+    public static class Board
+    {
+        Object leaderboard;
+        final AtomicLong added = new AtomicLong();
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Throwable
+        {
+            leaderboard = GameBridge.newLeaderboard();
+            added.set(0);
+        }
+
+        @TearDown(Level.Iteration)
+        public void check() throws Throwable
+        {
+            Object snapshot = GameBridge.leaderboardSnapshot(leaderboard);
+            if (GameBridge.snapshotSize(snapshot) != added.get()) {
+                throw new IllegalStateException("lost entries: board has " + GameBridge.snapshotSize(snapshot)
+                        + ", " + added.get() + " were added");
+            }
+            checkOrder(snapshot);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer
+    {
+        final SplittableRandom random = new SplittableRandom();
+        Object[] entries;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Throwable
+        {
+            // Built ahead so the measured loop is the board, not the allocation
+            entries = new Object[1 << 12];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = GameBridge.leaderboardEntry("p" + i, random.nextInt(1_000_000));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader
+    {
+        long lastVersion;
+
+        @Setup(Level.Iteration)
+        public void setUp()
+        {
+            lastVersion = 0;
+        }
+    }
+
+    @Benchmark
+    @Group("board")
+    @GroupThreads(4)
+    public void add(Board board, Writer writer) throws Throwable
+    {
+        GameBridge.addScore(board.leaderboard, writer.entries[writer.next++ & (writer.entries.length - 1)]);
+        board.added.incrementAndGet();
+    }
+
+    @Benchmark
+    @Group("board")
+    @GroupThreads(4)
+    public Object read(Board board, Reader reader) throws Throwable
+    {
+        Object snapshot = GameBridge.leaderboardSnapshot(board.leaderboard);
+        long version = GameBridge.snapshotVersion(snapshot);
+        if (version < reader.lastVersion) {
+            throw new IllegalStateException("snapshot version went back from " + reader.lastVersion + " to " + version);
+        }
+        reader.lastVersion = version;
+        checkOrder(snapshot);
+        return snapshot;
+    }
+
+    private static void checkOrder(Object snapshot) throws Throwable
+    {
+        // The whole snapshot, not just the first page
+        List<?> top = GameBridge.snapshotTop(snapshot, Integer.MAX_VALUE);
+        for (int i = 1; i < top.size(); i++) {
+            if (GameBridge.score(top.get(i - 1)) < GameBridge.score(top.get(i))) {
+                throw new IllegalStateException("snapshot out of order at " + i);
+            }
+        }
+    }
+}
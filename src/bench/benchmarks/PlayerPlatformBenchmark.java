@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The player-vs-platform collision loop in Player.update, scaled by platform count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerPlatformBenchmark
+{
+    @Param({"level1", "level5", "1000", "10000", "100000"})
+    public String scale;
+
+    private Object game;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        game = GameBridge.scenario(scale, "f", false);
+    }
+
+    @Benchmark
+    public void playerAgainstPlatforms() throws Throwable
+    {
+        GameBridge.updatePlayerAgainstPlatforms(game);
+    }
+}
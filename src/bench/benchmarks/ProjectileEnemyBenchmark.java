@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Projectile movement plus the projectile-vs-enemy test, scaled by enemy and projectile
+ * count. The scenario builds the enemy grid once (enemies do not move here) and the
+ * projectiles hover exactly the hit range above the enemy line, so each one is tested
+ * against the enemies in its cells and none is consumed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectileEnemyBenchmark
+{
+    @Param({"level1", "level5", "1000", "10000", "100000"})
+    public String scale;
+
+    private Object game;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        game = GameBridge.scenario(scale, "ep", false);
+    }
+
+    @Benchmark
+    public void projectilesAgainstEnemies() throws Throwable
+    {
+        GameBridge.updateProjectiles(game);
+    }
+}
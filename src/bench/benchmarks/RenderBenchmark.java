@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+
+/**
+ * EscapeRoomGame.render into offscreen canvases, scaled by enemy, projectile and
+ * particle count: render() redraws everything into one canvas, renderLayered()
+ * is the per-frame path of the three-canvas game screen.
+ *
+ * This measures the cost of issuing draw calls into the canvas command buffer,
+ * not GPU time. The canvases are never attached to a scene, so a full-canvas
+ * clearRect before each redraw is what keeps those buffers from growing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark
+{
+    private static final int WIDTH = 1200;
+    private static final int HEIGHT = 700;
+
+    @Param({"level1", "level5", "1000", "10000", "100000"})
+    public String scale;
+
+    private Object game;
+    private GraphicsContext gc;
+    private GraphicsContext staticGc, dynamicGc, hudGc;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        startToolkit();
+        game = GameBridge.scenario(scale, "epx", true);
+        gc = new Canvas(WIDTH, HEIGHT).getGraphicsContext2D();
+        staticGc = new Canvas(WIDTH, HEIGHT).getGraphicsContext2D();
+        dynamicGc = new Canvas(WIDTH, HEIGHT).getGraphicsContext2D();
+        hudGc = new Canvas(WIDTH, HEIGHT).getGraphicsContext2D();
+    }
+
+    @Benchmark
+    public void render() throws Throwable
+    {
+        gc.clearRect(0, 0, WIDTH, HEIGHT);
+        GameBridge.render(game, gc);
+    }
+
+    @Benchmark
+    public void renderLayered() throws Throwable
+    {
+        GameBridge.renderLayers(game, staticGc, dynamicGc, hudGc);
+    }
+
+    private static void startToolkit() throws InterruptedException
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException alreadyRunning) {
+            started.countDown();
+        }
+        started.await();
+    }
+}
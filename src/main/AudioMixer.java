@@ -0,0 +1,223 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javafx.scene.media.AudioClip;
+
+/**
+ * Sound playback off the game thread, with per-tick coalescing and voice limits.
+ *
+ * Gameplay calls playSound() as before, but nothing is played there: cues are
+ * collected per sound for the current tick (ten enemy deaths in one tick become
+ * one cue at the loudest requested volume) and endTick() publishes them to a
+ * single-producer, single-consumer ring buffer and unparks a daemon audio
+ * thread, which sleeps while there is nothing to play. It drains the ring,
+ * admits the cues in priority order while their sound is under its voice cap
+ * and the mixer is under MAX_VOICES, and plays them with AudioClip.play(volume),
+ * which leaves the shared clip's own volume alone.
+ *
+ * AudioClip gives no handle to a playing instance, so a voice counts as busy for
+ * the sound's nominal length after it starts.
+ */
+public class AudioMixer implements AudioSink
+{
+    static final int MAX_VOICES = 8;
+    private static final int RING_SIZE = 256; // power of two
+
+    private static AudioMixer shared;
+
+    /** Voice cap, priority (higher wins) and nominal length of one sound. */
+    private static final class Voice
+    {
+        final String key;
+        final int cap;
+        final int priority;
+        final long lengthNanos;
+        final long[] busyUntil;
+        AudioClip clip;
+
+        Voice(String key, int cap, int priority, long lengthMillis)
+        {
+            this.key = key;
+            this.cap = cap;
+            this.priority = priority;
+            this.lengthNanos = lengthMillis * 1_000_000L;
+            this.busyUntil = new long[cap];
+        }
+    }
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Voice[] voices;
+
+    // Game thread: loudest volume requested this tick per sound, or 0 if none
+    private final double[] pending;
+
+    // Ring of (sound id, volume); head is only written by the game thread, tail by the audio thread
+    private final int[] ringIds = new int[RING_SIZE];
+    private final double[] ringVolumes = new double[RING_SIZE];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Audio thread only
+    private final int[] batchIds = new int[RING_SIZE];
+    private final double[] batchVolumes = new double[RING_SIZE];
+    private final Thread audioThread;
+
+    AudioMixer(ResourceManager rm)
+    {
+        voices = new Voice[] {
+            new Voice("level_complete", 1, 10, 2000),
+            new Voice("aag", 1, 9, 1000),
+            new Voice("hit", 2, 8, 300),
+            new Voice("shield_activate", 1, 7, 500),
+            new Voice("absorb", 1, 6, 500),
+            new Voice("power_use", 2, 5, 300),
+            new Voice("enemy_death", 3, 4, 400),
+            new Voice("shoot", 3, 3, 200),
+            new Voice("jump", 1, 2, 250),
+        };
+        for (int i = 0; i < voices.length; i++) {
+            ids.put(voices[i].key, i);
+            voices[i].clip = rm.getClip(voices[i].key);
+        }
+        pending = new double[voices.length];
+
+        audioThread = new Thread(this::drainLoop, "audio-mixer");
+        audioThread.setDaemon(true);
+        audioThread.start();
+    }
+
+    /** The mixer for the loaded ResourceManager; started on first use. */
+    public static synchronized AudioMixer getInstance()
+    {
+        if (shared == null) {
+            shared = new AudioMixer(ResourceManager.getInstance());
+        }
+        return shared;
+    }
+
+    @Override
+    public void playSound(String key, double volume)
+    {
+        Integer id = ids.get(key);
+        if (id != null && volume > pending[id]) {
+            pending[id] = volume;
+        }
+    }
+
+    @Override
+    public void endTick()
+    {
+        long h = head.get();
+        boolean published = false;
+        for (int id = 0; id < pending.length; id++) {
+            if (pending[id] <= 0) {
+                continue;
+            }
+            // A full ring means the audio thread is far behind; late sounds are worthless, drop them
+            if (h - tail.get() < RING_SIZE) {
+                int slot = (int) (h & (RING_SIZE - 1));
+                ringIds[slot] = id;
+                ringVolumes[slot] = pending[id];
+                h++;
+                published = true;
+            }
+            pending[id] = 0;
+        }
+        if (published) {
+            // A full volatile store before the unpark, so a woken audio thread always sees the cues
+            head.set(h);
+            LockSupport.unpark(audioThread);
+        }
+    }
+
+    private void drainLoop()
+    {
+        while (true) {
+            long t = tail.get();
+            long h = head.get();
+            if (t == h) {
+                // Sleeps until endTick() unparks it. An unpark that lands between the
+                // check and here leaves a permit, so park() returns at once and the
+                // ring is checked again; spurious wakeups just loop the same way.
+                LockSupport.park(this);
+                continue;
+            }
+
+            int n = 0;
+            for (; t < h; t++) {
+                int slot = (int) (t & (RING_SIZE - 1));
+                batchIds[n] = ringIds[slot];
+                batchVolumes[n] = ringVolumes[slot];
+                n++;
+            }
+            tail.lazySet(t);
+            play(n);
+        }
+    }
+
+    // Plays a drained batch, highest priority first, within the voice limits
+    private void play(int n)
+    {
+        sortByPriority(n);
+        long now = System.nanoTime();
+        int active = activeVoices(now);
+
+        for (int i = 0; i < n && active < MAX_VOICES; i++) {
+            Voice voice = voices[batchIds[i]];
+            if (voice.clip == null) {
+                continue;
+            }
+            int free = freeVoice(voice, now);
+            if (free < 0) {
+                continue;
+            }
+            voice.busyUntil[free] = now + voice.lengthNanos;
+            active++;
+            try {
+                voice.clip.play(batchVolumes[i]);
+            } catch (RuntimeException e) {
+                // A clip that fails to play is not worth taking the audio thread down for
+            }
+        }
+    }
+
+    private int activeVoices(long now)
+    {
+        int active = 0;
+        for (Voice voice : voices) {
+            for (long until : voice.busyUntil) {
+                if (until > now) active++;
+            }
+        }
+        return active;
+    }
+
+    private static int freeVoice(Voice voice, long now)
+    {
+        for (int v = 0; v < voice.cap; v++) {
+            if (voice.busyUntil[v] <= now) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    // Insertion sort; a batch is a handful of cues
+    private void sortByPriority(int n)
+    {
+        for (int i = 1; i < n; i++) {
+            int id = batchIds[i];
+            double volume = batchVolumes[i];
+            int j = i - 1;
+            while (j >= 0 && voices[batchIds[j]].priority < voices[id].priority) {
+                batchIds[j + 1] = batchIds[j];
+                batchVolumes[j + 1] = batchVolumes[j];
+                j--;
+            }
+            batchIds[j + 1] = id;
+            batchVolumes[j + 1] = volume;
+        }
+    }
+}
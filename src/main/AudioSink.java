@@ -0,0 +1,17 @@
+/**
+ * Destination for gameplay sound cues. The engine only talks to this interface,
+ * so it can run with real audio, with no audio at all, or with a recorder.
+ */
+public interface AudioSink
+{
+    /** Sink that drops every cue; used by headless simulations. */
+    AudioSink SILENT = (key, volume) -> { };
+
+    void playSound(String key, double volume);
+
+    /**
+     * Called by the engine once per tick, after the tick's cues; sinks that
+     * batch or coalesce cues flush them here.
+     */
+    default void endTick() { }
+}
@@ -0,0 +1,66 @@
+/**
+ * Horizontal camera over a world that may be wider than the screen.
+ *
+ * The camera keeps the followed point centred and stops at the world edges, so
+ * in a world exactly one screen wide it never moves. It is advanced once per
+ * simulation tick and remembers where it was the tick before, so rendering can
+ * interpolate it the same way as the entities.
+ */
+public class Camera
+{
+    private final int viewWidth;
+    private double x, prevX;
+
+    public Camera(int viewWidth)
+    {
+        this.viewWidth = viewWidth;
+    }
+
+    /** Jumps straight to the target, e.g. at level start. */
+    public void reset(double targetX, int worldWidth)
+    {
+        x = clamp(targetX - viewWidth / 2.0, worldWidth);
+        prevX = x;
+    }
+
+    /** Moves to centre targetX, within [0, worldWidth - view width]. */
+    public void follow(double targetX, int worldWidth)
+    {
+        prevX = x;
+        x = clamp(targetX - viewWidth / 2.0, worldWidth);
+    }
+
+    /** Puts back a position saved from left() and left(0). */
+    public void restore(double left, double prevLeft)
+    {
+        x = left;
+        prevX = prevLeft;
+    }
+
+    /** World x of the left edge of the view. */
+    public double left()
+    {
+        return x;
+    }
+
+    public double right()
+    {
+        return x + viewWidth;
+    }
+
+    /** Left edge blended between the previous and current tick. */
+    public double left(double alpha)
+    {
+        return prevX + (x - prevX) * alpha;
+    }
+
+    public int viewWidth()
+    {
+        return viewWidth;
+    }
+
+    private double clamp(double left, int worldWidth)
+    {
+        return Math.max(0, Math.min(left, worldWidth - viewWidth));
+    }
+}
@@ -0,0 +1,25 @@
+import javafx.scene.canvas.Canvas;
+
+/**
+ * Draws frames into the game screen's three stacked canvases (static world,
+ * moving entities, HUD) with EscapeRoomGame's layered render. Needs a game
+ * built with a ResourceManager.
+ */
+public final class CanvasRenderSink implements RenderSink
+{
+    private final Canvas staticCanvas, dynamicCanvas, hudCanvas;
+
+    public CanvasRenderSink(Canvas staticCanvas, Canvas dynamicCanvas, Canvas hudCanvas)
+    {
+        this.staticCanvas = staticCanvas;
+        this.dynamicCanvas = dynamicCanvas;
+        this.hudCanvas = hudCanvas;
+    }
+
+    @Override
+    public void present(EscapeRoomGame game, double alpha)
+    {
+        game.render(staticCanvas.getGraphicsContext2D(), dynamicCanvas.getGraphicsContext2D(),
+                hudCanvas.getGraphicsContext2D(), alpha);
+    }
+}
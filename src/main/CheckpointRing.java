@@ -0,0 +1,62 @@
+/**
+ * A fixed number of GameSnapshots, the newest overwriting the oldest.
+ *
+ * The snapshots are allocated once, up front; push() hands out the slot to
+ * fill next, so taking a checkpoint during play allocates nothing.
+ */
+final class CheckpointRing
+{
+    private final GameSnapshot[] slots;
+    private int newest = -1;
+    private int size;
+
+    CheckpointRing(int capacity)
+    {
+        slots = new GameSnapshot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new GameSnapshot();
+        }
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+
+    /** The slot for a new checkpoint, now counted as the newest; fill it before the next call. */
+    GameSnapshot push()
+    {
+        newest = (newest + 1) % slots.length;
+        size = Math.min(size + 1, slots.length);
+        return slots[newest];
+    }
+
+    /** Makes an existing snapshot the newest checkpoint, in place of the slot it replaces. */
+    void push(GameSnapshot snapshot)
+    {
+        push();
+        slots[newest] = snapshot;
+    }
+
+    /** The i-th newest checkpoint; 0 is the newest. */
+    GameSnapshot get(int i)
+    {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("checkpoint " + i + ", size " + size);
+        }
+        return slots[Math.floorMod(newest - i, slots.length)];
+    }
+
+    /** Forgets the n newest checkpoints. */
+    void drop(int n)
+    {
+        n = Math.min(n, size);
+        newest = Math.floorMod(newest - n, slots.length);
+        size -= n;
+    }
+}
@@ -0,0 +1,216 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Leaderboard that any thread may add to and read from.
+ *
+ * The board is a read-only MappedLeaderboard base (everything stored on disk
+ * at startup) plus an in-memory RankedLeaderboard of the entries added since.
+ * Queries merge the two, base first among equal scores, without ever loading
+ * the base into memory.
+ *
+ * Reads go through an immutable, versioned Snapshot of the top SNAPSHOT_SIZE
+ * entries published through an AtomicReference: snapshot() is a single
+ * volatile read, never blocks and never copies. Writers queue their entries
+ * and whichever writer finds the board free applies everything queued so far
+ * to the RankedLeaderboard in one batch and publishes one new snapshot; the
+ * others return at once and their entries go out in that batch. Only the
+ * full-board queries (rankOf, range) wait for the board.
+ */
+public final class ConcurrentLeaderboard
+{
+    /** Entries kept in each published snapshot. */
+    public static final int SNAPSHOT_SIZE = 100;
+
+    private final ConcurrentLinkedQueue<EscapeRoomGame.LeaderboardEntry> pending = new ConcurrentLinkedQueue<>();
+    // Held by the writer applying a batch; guards board
+    private final ReentrantLock applying = new ReentrantLock();
+    private final RankedLeaderboard board = new RankedLeaderboard();
+    private MappedLeaderboard base = MappedLeaderboard.empty();
+    // The base's share of every snapshot, decoded once
+    private List<EscapeRoomGame.LeaderboardEntry> baseTop = Collections.emptyList();
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+
+    /** The latest published state. */
+    public Snapshot snapshot()
+    {
+        return current.get();
+    }
+
+    public void add(EscapeRoomGame.LeaderboardEntry entry)
+    {
+        pending.add(entry);
+        drain();
+    }
+
+    public void addAll(Collection<EscapeRoomGame.LeaderboardEntry> entries)
+    {
+        pending.addAll(entries);
+        drain();
+    }
+
+    /** Replaces the whole board with a stored base plus entries added after it. */
+    public void reset(MappedLeaderboard base, Collection<EscapeRoomGame.LeaderboardEntry> added)
+    {
+        applying.lock();
+        try {
+            this.base = base;
+            baseTop = base.top(SNAPSHOT_SIZE);
+            pending.clear();
+            board.clear();
+            pending.addAll(added);
+            applyPending();
+            publish();
+        } finally {
+            applying.unlock();
+        }
+    }
+
+    /** 1-based rank of a score over the whole board, counting every entry added so far. */
+    public int rankOf(int score)
+    {
+        applying.lock();
+        try {
+            applyPending();
+            return base.countAbove(score) + board.rankOf(score);
+        } finally {
+            applying.unlock();
+        }
+    }
+
+    /** Up to count entries from a 0-based position over the whole board. */
+    public List<EscapeRoomGame.LeaderboardEntry> range(int from, int count)
+    {
+        applying.lock();
+        try {
+            applyPending();
+            // Split the first from entries between the two runs, then merge onwards
+            int b = baseEntriesBefore(from);
+            return merge(base, b, board.range(from - b, count), count);
+        } finally {
+            applying.unlock();
+        }
+    }
+
+    // How many of the first n merged entries come from the base. Base entry i sits
+    // at merged position i + (added entries scoring strictly higher), which grows with i.
+    private int baseEntriesBefore(int n)
+    {
+        int lo = 0, hi = Math.min(n, base.size());
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mid + board.rankOf(base.score(mid)) - 1 < n) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Merges base entries from index b with already-ordered added entries, up to max
+    private static List<EscapeRoomGame.LeaderboardEntry> merge(MappedLeaderboard base, int b,
+            List<EscapeRoomGame.LeaderboardEntry> added, int max)
+    {
+        ArrayList<EscapeRoomGame.LeaderboardEntry> out = new ArrayList<>(Math.max(0, max));
+        int a = 0;
+        while (out.size() < max && (b < base.size() || a < added.size())) {
+            if (a == added.size() || (b < base.size() && base.score(b) >= added.get(a).score)) {
+                out.add(base.entry(b++));
+            } else {
+                out.add(added.get(a++));
+            }
+        }
+        return out;
+    }
+
+    // Applies queued entries unless another writer is already at it. Rechecks after
+    // letting go, so an entry queued while the lock was held is never left behind.
+    private void drain()
+    {
+        while (!pending.isEmpty() && applying.tryLock()) {
+            try {
+                applyPending();
+            } finally {
+                applying.unlock();
+            }
+        }
+    }
+
+    private void applyPending()
+    {
+        boolean changed = false;
+        EscapeRoomGame.LeaderboardEntry e;
+        while ((e = pending.poll()) != null) {
+            board.add(e);
+            changed = true;
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    private void publish()
+    {
+        List<EscapeRoomGame.LeaderboardEntry> top = mergeTop(baseTop, board.top(SNAPSHOT_SIZE));
+        Snapshot previous = current.get();
+        current.set(new Snapshot(previous.version + 1, base.size() + board.size(),
+                top.toArray(new EscapeRoomGame.LeaderboardEntry[0])));
+    }
+
+    private static List<EscapeRoomGame.LeaderboardEntry> mergeTop(List<EscapeRoomGame.LeaderboardEntry> fromBase,
+            List<EscapeRoomGame.LeaderboardEntry> added)
+    {
+        ArrayList<EscapeRoomGame.LeaderboardEntry> out = new ArrayList<>(SNAPSHOT_SIZE);
+        int b = 0, a = 0;
+        while (out.size() < SNAPSHOT_SIZE && (b < fromBase.size() || a < added.size())) {
+            if (a == added.size() || (b < fromBase.size() && fromBase.get(b).score >= added.get(a).score)) {
+                out.add(fromBase.get(b++));
+            } else {
+                out.add(added.get(a++));
+            }
+        }
+        return out;
+    }
+
+    /** Immutable view of the board at one version. */
+    public static final class Snapshot
+    {
+        static final Snapshot EMPTY = new Snapshot(0, 0, new EscapeRoomGame.LeaderboardEntry[0]);
+
+        private final long version;
+        private final int size;
+        private final List<EscapeRoomGame.LeaderboardEntry> top;
+
+        private Snapshot(long version, int size, EscapeRoomGame.LeaderboardEntry[] top)
+        {
+            this.version = version;
+            this.size = size;
+            this.top = Collections.unmodifiableList(Arrays.asList(top));
+        }
+
+        /** Increases by one with every published batch. */
+        public long version()
+        {
+            return version;
+        }
+
+        /** Entries on the whole board, not just in this snapshot. */
+        public int size()
+        {
+            return size;
+        }
+
+        /** The best max entries (at most SNAPSHOT_SIZE), highest first; a view, not a copy. */
+        public List<EscapeRoomGame.LeaderboardEntry> top(int max)
+        {
+            return top.subList(0, Math.min(Math.max(max, 0), top.size()));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import javafx.scene.paint.Color;
+
+/**
+ * Elemental type of enemies and projectiles.
+ */
+public enum Element
+{
+    NORMAL("normal", Color.DARKGRAY, Color.WHITE, 0, 0),
+    FIRE("fire", Color.RED, Color.RED, 7, 2),
+    ICE("ice", Color.CYAN, Color.CYAN, 6, 1),
+    ELECTRIC("electric", Color.YELLOW, Color.YELLOW, 8, 3);
+
+    public final String key;
+    public final Color enemyColor;
+    public final Color projectileColor;
+    public final Color projectileHighlight;
+    // Speed and damage of the player's shot of this element
+    public final double projectileSpeed;
+    public final int projectileDamage;
+    final String enemyImageKey;
+    final String projectileImageKey;
+
+    Element(String key, Color enemyColor, Color projectileColor, double projectileSpeed, int projectileDamage)
+    {
+        this.key = key;
+        this.projectileSpeed = projectileSpeed;
+        this.projectileDamage = projectileDamage;
+        this.enemyColor = enemyColor;
+        this.projectileColor = projectileColor;
+        this.projectileHighlight = projectileColor.brighter();
+        this.enemyImageKey = "enemy_" + key;
+        this.projectileImageKey = "projectile_" + key;
+    }
+
+    /*
+    DAMAGE :
+
+    fire     + ice       = 2x damage
+    ice      + fire      = 2x damage
+    electric + ice       = 2x damage
+    else                 = normal damage
+    */
+    public boolean isWeakTo(Element attack)
+    {
+        return (this == FIRE && attack == ICE)
+                || (this == ICE && attack == FIRE)
+                || (this == ELECTRIC && attack == ICE);
+    }
+}
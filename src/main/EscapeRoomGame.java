@@ -1,23 +1,29 @@
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
-import javafx.scene.text.Text;
 
 public class EscapeRoomGame 
 {
     public static final int WIDTH = 1200;
     public static final int HEIGHT = 700;
     public static final int PLAYER_SIZE = 35;
+    // Simulation rate; every per-tick constant below is tuned for 60 ticks per second
+    public static final int TICK_RATE = 60;
     private static final int MAX_LIVES = 3;
     private static final double PLAYER_MOVE_SPEED = 2.3;
     private static final double PLAYER_JUMP_FORCE = -10;
@@ -26,6 +32,34 @@ public class EscapeRoomGame
     private static final double ENEMY_BASE_SPEED = 3;
     private static final int GAME_OVER_DELAY_FRAMES = 180;
     private static final int POINTS_PER_ENEMY = 100;
+    private static final int ENEMY_DEATH_BURST = 10;
+    private static final int ABSORB_BURST = 20;
+    // Half a second between power uses, counted in ticks so replays reproduce it
+    private static final int POWER_COOLDOWN_TICKS = TICK_RATE / 2;
+    private static final int ABSORB_RANGE = 80;
+    // Checkpoints every half second, enough of them to rewind REWIND_TICKS
+    private static final int CHECKPOINT_TICKS = TICK_RATE / 2;
+    private static final int REWIND_TICKS = 3 * TICK_RATE;
+    private static final int CHECKPOINT_SLOTS = REWIND_TICKS / CHECKPOINT_TICKS + 2;
+    private static final int REWIND_COOLDOWN_TICKS = 10 * TICK_RATE;
+    // Bumped whenever captureState() changes what it writes
+    private static final int STATE_VERSION = 2;
+    // values() clones its array on every call
+    private static final Element[] ELEMENTS = Element.values();
+    private static final PowerColor[] POWER_COLORS = PowerColor.values();
+    // Enemies are 30px, projectiles hit within 20px of an enemy centre, the player within 30px
+    private static final int ENEMY_HALF_SIZE = 15;
+    private static final double PROJECTILE_HIT_RANGE = 20;
+    private static final double PLAYER_HIT_RANGE = 30;
+    private static final double BROADPHASE_CELL_SIZE = 32;
+    private static final Color SHIELD_OUTLINE = Color.rgb(148, 0, 211, 0.4);
+    private static final Color GAME_OVER_SHADE = Color.rgb(0, 0, 0, 0.75);
+    private static final Color LEVEL_COMPLETE_SHADE = Color.rgb(0, 0, 0, 0.7);
+    private static final Color PLATFORM_GRAY = Color.rgb(100, 100, 100);
+    private static final Color WATER_COLOR = Color.rgb(255, 85, 0);
+    // Colour guide entries shown in the HUD
+    private static final PowerColor[] GUIDE_COLORS = {PowerColor.RED, PowerColor.BLUE, PowerColor.YELLOW, PowerColor.PURPLE};
+    private static final String[] GUIDE_NAMES = {"RED: Fire", "BLUE: Ice/Water", "YELLOW: Electric", "PURPLE: Shield"};
 
     /**
      * Simple in-memory leaderboard entry.
@@ -46,16 +80,69 @@ public class EscapeRoomGame
     public ArrayList<ColoredBlock> coloredBlocks;
     public ArrayList<Enemy> enemies;
     public ArrayList<Platform> platforms;
+    // Compiled from platforms by initLevel(); solid ground and water are indexed separately
+    PlatformIndex solidPlatforms;
+    PlatformIndex waterPlatforms;
     public ArrayList<Projectile> projectiles;
-    public ArrayList<Particle> particles;
+    public ParticleSystem particles;
     public Goal goal;
     public int level;
     public boolean gameWon;
     private Random random;
+    private final long seed;
+    // Null when running headless; only needed for drawing
     private ResourceManager resourceManager;
+    private AudioSink audio;
     private int lives;
     private boolean gameOver;
     private int gameOverTimer;
+    private ParticleSystem.Emitter deathBurst;
+    private ParticleSystem.Emitter absorbBurst;
+    // Sprites resolved once per game; entries are null when headless or when the image is missing
+    private final SpriteAtlas.Region[] playerSprites = new SpriteAtlas.Region[PowerColor.values().length];
+    private SpriteAtlas.Region shieldSprite;
+    // Fetched through the image cache on every draw, so it can evict them
+    private ImageCache.Handle evenLevelBackground;
+    private ImageCache.Handle oddLevelBackground;
+
+    // Text is set up on first render, so headless games never touch the font system
+    private TextRenderer text;
+    private Font hudTitleFont, hudFont, hudSmallFont;
+    private Font gameOverFont, finalScoreFont, leaderboardTitleFont, leaderboardFont, footerFont;
+    private Font levelCompleteFont, ratingFont, instructionFont;
+    private final HudLabel levelLabel = new HudLabel("Level: ");
+    private final HudLabel scoreLabel = new HudLabel("Score: ");
+    private final HudLabel totalPointsLabel = new HudLabel("Total Points: ");
+    // Overlay lines that only change at game over / level end are built once there
+    private String playerLine = "Player: Player";
+    private String ratingLine = "";
+    private final ArrayList<String> leaderboardLines = new ArrayList<>();
+
+    // Layered rendering: bumped whenever the static world changes, and the HUD
+    // state that was last drawn, so render(static, dynamic, hud, alpha) can skip
+    // layers that are still up to date
+    private int staticVersion;
+    private int bakedStaticVersion = -1;
+    private boolean hudDrawn;
+    private int hudLevel, hudScore, hudLives, hudStars;
+    private PowerColor hudPower;
+    private boolean hudGameOver, hudGameWon;
+    // Enemy centres bucketed by cell, rebuilt every tick after enemies move
+    // Covers the resident chunks around the view; enemies beyond are clamped into the edge cells
+    private final SpatialGrid enemyGrid = new SpatialGrid(WIDTH + 2 * WorldChunks.MARGIN + WorldChunks.CHUNK_WIDTH,
+            HEIGHT, BROADPHASE_CELL_SIZE);
+
+    // Levels can be wider than the screen: the camera follows the player and only
+    // the chunks around it keep live enemies and blocks
+    int worldWidth = WIDTH;
+    final Camera camera = new Camera(WIDTH);
+    final WorldChunks chunks = new WorldChunks(this);
+    private double bakedViewLeft = Double.NaN;
+    // Builds the next level off-thread while this one is played
+    private final LevelPrefetcher prefetcher;
+    private int[] visiblePlatforms = new int[64];
+    // Blend factor between the previous and current tick, set per render call
+    private double renderAlpha = 1.0;
 
     // Scoring / rating
     private String playerName = "Player";
@@ -63,35 +150,180 @@ public class EscapeRoomGame
     private int enemiesAtLevelStart = 0;
     private int enemiesKilledThisLevel = 0;
     private int starsEarnedThisLevel = 0;
+    // Best rating on each completed level, index 0 being level 1
+    private byte[] levelStars = new byte[0];
+
+    // Simulation clock: ticks run since construction, and when the power may next be used
+    private int ticks;
+    private int powerReadyTick;
+    private int rewindReadyTick;
+    // Frames go here from render(alpha); the screen plugs in its canvases
+    private RenderSink renderSink = RenderSink.NONE;
+    // Off for replays, so re-simulating a run never posts its score again
+    private boolean recordsScores = true;
+    // Only the on-screen game writes the save slot; set once this run has written it
+    private boolean savesProgress;
+    private boolean savedThisRun;
+
+    // The level as it started (respawn, retry) and the last few seconds of play (rewind)
+    private GameSnapshot levelStart = new GameSnapshot();
+    private final CheckpointRing checkpoints = new CheckpointRing(CHECKPOINT_SLOTS);
+    // Spare entity objects: dead, dropped and stored entities come back here for reuse
+    private final ArrayList<Enemy> enemyPool = new ArrayList<>();
+    private final ArrayList<ColoredBlock> blockPool = new ArrayList<>();
+    private final ArrayList<Projectile> projectilePool = new ArrayList<>();
 
     // Shared leaderboard across runs of the game instance
-    private static final ArrayList<LeaderboardEntry> leaderboard = new ArrayList<>();
-    // Store the leaderboard in a visible text file under the project's resources folder
-    // so it is easy to inspect and edit during development.
+    private static final ConcurrentLeaderboard leaderboard = new ConcurrentLeaderboard();
+    // Store the leaderboard under the project's resources folder; a leaderboard.txt
+    // there (name TAB score per line) is imported the first time.
     private static final String LEADERBOARD_FILE =
-            "src" + File.separator + "resources" + File.separator + "leaderboard.txt";
+            "src" + File.separator + "resources" + File.separator + "leaderboard.bin";
+    // Persists scores off the FX thread; opened on first load or save
+    private static LeaderboardStore leaderboardStore;
+    // Shared score service, when -Descaperoom.scoreServer is set; its outbox sits beside the board
+    private static final String SCORE_OUTBOX_FILE =
+            "src" + File.separator + "resources" + File.separator + "score-outbox.log";
+    private static ScoreClient scoreClient;
+    private static boolean scoreClientChecked;
+    // The run in progress, rewritten at every level start and finish
+    private static final String SAVE_FILE =
+            "src" + File.separator + "resources" + File.separator + "savegame.bin";
+    private static SaveStore saveStore;
 
     public EscapeRoomGame() 
     {
-        random = new Random();
+        this(ResourceManager.getInstance(), AudioMixer.getInstance());
+    }
+
+    /**
+     * Creates a game wired to the given sprite source and audio sink. Passing a
+     * null ResourceManager gives a headless engine: update() works as usual,
+     * render(alpha) goes to RenderSink.NONE, the GraphicsContext overloads are
+     * unavailable, and no JavaFX toolkit is required.
+     */
+    public EscapeRoomGame(ResourceManager resourceManager, AudioSink audio)
+    {
+        this(resourceManager, audio, new Random().nextLong());
+    }
+
+    /**
+     * As above, with every random choice derived from seed: two games built
+     * with the same seed and fed the same update(int) inputs stay identical.
+     */
+    public EscapeRoomGame(ResourceManager resourceManager, AudioSink audio, long seed)
+    {
+        this.seed = seed;
+        random = new Random(seed);
         level = 1;
         gameWon = false;
-        resourceManager = ResourceManager.getInstance();
+        this.resourceManager = resourceManager;
+        this.audio = audio != null ? audio : AudioSink.SILENT;
+        for (PowerColor c : PowerColor.values()) {
+            playerSprites[c.ordinal()] = sprite(c.playerImageKey);
+        }
+        shieldSprite = sprite("player_shield");
+        evenLevelBackground = imageHandle("background");
+        oddLevelBackground = imageHandle("background2");
+        resizeParticleBudget(ParticleSystem.DEFAULT_CAPACITY);
+        prefetcher = new LevelPrefetcher(this, resourceManager == null ? null : LevelPrefetcher.sharedExecutor());
         lives = MAX_LIVES;
         gameOver = false;
         gameOverTimer = 0;
-        // resourceManager.playSound("background_music", 0.1);
         initLevel();
     }
 
+    /**
+     * Headless engine for bots, regression checks and batch scoring: no images,
+     * no sounds, no JavaFX toolkit.
+     */
+    public static EscapeRoomGame headless()
+    {
+        return new EscapeRoomGame(null, AudioSink.SILENT);
+    }
+
+    /** Headless and seeded, for replays. */
+    public static EscapeRoomGame headless(long seed)
+    {
+        return new EscapeRoomGame(null, AudioSink.SILENT, seed);
+    }
+
+    public long seed()
+    {
+        return seed;
+    }
+
+    /** Ticks simulated since construction. */
+    public int ticks()
+    {
+        return ticks;
+    }
+
+    public void setRecordsScores(boolean recordsScores)
+    {
+        this.recordsScores = recordsScores;
+    }
+
+    /**
+     * Whether the first tick, level starts and finishes write the save slot;
+     * off unless set.
+     */
+    public void setSavesProgress(boolean savesProgress)
+    {
+        this.savesProgress = savesProgress;
+    }
+
+    public boolean isHeadless()
+    {
+        return resourceManager == null;
+    }
+
+    /**
+     * Looks up an atlas sprite once, at construction time, so drawing never hashes keys.
+     */
+    private SpriteAtlas.Region sprite(String key)
+    {
+        return resourceManager == null ? null : resourceManager.getSprite(key);
+    }
+
+    /**
+     * As sprite(), for the large images that are kept out of the atlas. These
+     * stay in the image cache's budget, so only a handle is kept and the image
+     * is fetched when drawn.
+     */
+    private ImageCache.Handle imageHandle(String key)
+    {
+        return resourceManager == null ? null : resourceManager.getImageHandle(key);
+    }
+
+    /** As imageHandle(), for the image decoded at the size it is drawn at. */
+    private ImageCache.Handle imageHandle(String key, int width, int height)
+    {
+        return resourceManager == null ? null : resourceManager.getImageHandle(key, width, height);
+    }
+
+    /**
+     * Replaces the particle engine with one that can hold the given number of
+     * live particles. Allocates, so only call it outside the game loop.
+     */
+    public void resizeParticleBudget(int capacity)
+    {
+        particles = new ParticleSystem(capacity, random.nextLong());
+        if (resourceManager != null) {
+            particles.bindSprites(resourceManager);
+        }
+        deathBurst = particles.emitter(ENEMY_DEATH_BURST, 1.0);
+        absorbBurst = particles.emitter(ABSORB_BURST, 1.0);
+    }
+
     public void initLevel() 
     {
         player = new Player(100, HEIGHT - 150);
-        coloredBlocks = new ArrayList<>();
-        enemies = new ArrayList<>();
-        platforms = new ArrayList<>();
-        projectiles = new ArrayList<>();
-        particles = new ArrayList<>();
+        if (projectiles == null) {
+            projectiles = new ArrayList<>();
+        }
+        releaseAll(projectiles, projectilePool);
+        particles.clear();
         gameWon = false;
         gameOver = false;
 
@@ -100,267 +332,480 @@ public class EscapeRoomGame
         enemiesKilledThisLevel = 0;
         starsEarnedThisLevel = 0;
 
-        // Ground
-        platforms.add(new Platform(0, HEIGHT - 50, WIDTH, 50, Color.rgb(100, 100, 100)));
+        installLevel(prefetcher.take(level));
 
-        
+        // Capture how many enemies were spawned for this level
+        enemiesAtLevelStart = enemies.size();
 
-        switch (level) 
-        {
-            case 1:
-                createLevel1();
-                break;
-            case 2:
-                createLevel2();
-                break;
-            case 3:
-                createLevel3();
-                break;
-            case 4:
-                createLevel4();
-                break;
-            default:
-                createLevel5();
-                break;
+        // Store away everything that starts far from the camera
+        camera.reset(player.x + PLAYER_SIZE / 2, worldWidth);
+        chunks.reset(worldWidth);
+        chunks.stream(camera.left(), camera.right());
+
+        checkpoints.clear();
+        saveTo(levelStart);
+        saveProgress(level);
+
+        // Get the next level ready while this one is played; retries use levelStart
+        prefetcher.prefetchNext(level);
+    }
+
+    /**
+     * Recompiles the platform indexes; needed whenever the platform list changes.
+     */
+    void rebuildPlatformIndex() {
+        solidPlatforms = PlatformIndex.build(platforms, false);
+        waterPlatforms = PlatformIndex.build(platforms, true);
+        staticVersion++;
+    }
+
+    // Swaps in a prepared level; the platform list is copied so stress scenes can add to it
+    private void installLevel(LevelPrefetcher.Prepared p) {
+        if (enemies != null) {
+            releaseAll(enemies, enemyPool);
+            releaseAll(coloredBlocks, blockPool);
         }
+        worldWidth = p.data.worldWidth;
+        platforms = new ArrayList<>(p.platforms);
+        solidPlatforms = p.solidPlatforms;
+        waterPlatforms = p.waterPlatforms;
+        staticVersion++;
+        coloredBlocks = p.coloredBlocks;
+        enemies = p.enemies;
+        goal = p.goal;
+    }
 
-        // Capture how many enemies were spawned for this level
-        enemiesAtLevelStart = enemies.size();
+    /**
+     * Instantiates a level's entities in file order. Reuses the platforms and
+     * indexes of layout when given (another copy of the same level). Runs on
+     * the prefetch thread, so it must not touch live game state.
+     */
+    LevelPrefetcher.Prepared prepareLevel(int level, LevelPrefetcher.Prepared layout) {
+        LevelData data = layout != null ? layout.data : LevelCompiler.load(level);
+
+        ArrayList<Platform> levelPlatforms;
+        PlatformIndex solids, water;
+        if (layout != null) {
+            levelPlatforms = layout.platforms;
+            solids = layout.solidPlatforms;
+            water = layout.waterPlatforms;
+        } else {
+            levelPlatforms = new ArrayList<>(data.platformCount());
+            for (int i = 0; i < data.platformCount(); i++) {
+                levelPlatforms.add(new Platform(data.platformX[i], data.platformY[i], data.platformWidth[i],
+                        data.platformHeight[i], data.platformWater[i] ? WATER_COLOR : PLATFORM_GRAY));
+            }
+            solids = PlatformIndex.build(levelPlatforms, false);
+            water = PlatformIndex.build(levelPlatforms, true);
+        }
+
+        ArrayList<ColoredBlock> blocks = new ArrayList<>(data.blockCount());
+        for (int i = 0; i < data.blockCount(); i++) {
+            blocks.add(new ColoredBlock(data.blockX[i], data.blockY[i], data.blockWidth[i],
+                    data.blockHeight[i], data.blockColor[i]));
+        }
+        ArrayList<Enemy> levelEnemies = new ArrayList<>(data.enemyCount());
+        for (int i = 0; i < data.enemyCount(); i++) {
+            levelEnemies.add(new Enemy(data.enemyX[i], data.enemyY[i], data.enemyElement[i]));
+        }
+        return new LevelPrefetcher.Prepared(level, data, levelPlatforms, solids, water,
+                blocks, levelEnemies, new Goal(data.goalX, data.goalY));
     }
 
-    private void createLevel1() {
-        // Tutorial: Learn basic color absorption
-        coloredBlocks.add(new ColoredBlock(300, HEIGHT - 150, 50, 50, "red"));
-        coloredBlocks.add(new ColoredBlock(500, HEIGHT - 250, 50, 50, "blue"));
-        coloredBlocks.add(new ColoredBlock(700, HEIGHT - 150, 50, 50, "yellow"));
-
-        platforms.add(new Platform(450, HEIGHT - 200, 150, 20, Color.rgb(100, 100, 100)));
-
-        enemies.add(new Enemy(600, HEIGHT - 100, "normal"));
-        enemies.add(new Enemy(900, HEIGHT - 100, "normal"));
-        enemies.add(new Enemy(750, HEIGHT - 150, "normal"));
-
-        goal = new Goal(1050, HEIGHT - 150);
-    }
-
-    private void createLevel2() {
-        // Ice and water mechanics
-        coloredBlocks.add(new ColoredBlock(250, HEIGHT - 120, 50, 50, "blue"));
-        coloredBlocks.add(new ColoredBlock(450, HEIGHT - 180, 50, 50, "red"));
-
-        platforms.add(new Platform(300, HEIGHT - 150, 100, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(500, HEIGHT - 250, 150, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(750, HEIGHT - 200, 100, 20, Color.rgb(100, 100, 100)));
-
-        // Water pool
-        platforms.add(new Platform(600, HEIGHT - 50, 120, 50, Color.rgb(255, 85, 0)));
-
-        enemies.add(new Enemy(350, HEIGHT - 100, "fire"));
-        enemies.add(new Enemy(800, HEIGHT - 250, "normal"));
-        enemies.add(new Enemy(900, HEIGHT - 100, "normal"));
-
-        coloredBlocks.add(new ColoredBlock(800, HEIGHT - 250, 50, 50, "yellow"));
-
-        goal = new Goal(1050, HEIGHT - 220);
-    }
-
-    private void createLevel3() {
-        // Electricity puzzles
-        coloredBlocks.add(new ColoredBlock(200, HEIGHT - 120, 50, 50, "yellow"));
-        coloredBlocks.add(new ColoredBlock(400, HEIGHT - 320, 50, 50, "blue"));
-        coloredBlocks.add(new ColoredBlock(700, HEIGHT - 220, 50, 50, "red"));
-
-        platforms.add(new Platform(250, HEIGHT - 150, 100, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(350, HEIGHT - 270, 150, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(550, HEIGHT - 350, 100, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(750, HEIGHT - 250, 150, 20, Color.rgb(100, 100, 100)));
-
-        enemies.add(new Enemy(300, HEIGHT - 200, "electric"));
-        enemies.add(new Enemy(600, HEIGHT - 400, "ice"));
-        enemies.add(new Enemy(850, HEIGHT - 300, "fire"));
-
-        goal = new Goal(950, HEIGHT - 350);
-    }
-
-    private void createLevel4() {
-        // All colors needed (without green power)
-        coloredBlocks.add(new ColoredBlock(180, HEIGHT - 120, 50, 50, "red"));
-        coloredBlocks.add(new ColoredBlock(280, HEIGHT - 220, 50, 50, "blue"));
-        coloredBlocks.add(new ColoredBlock(380, HEIGHT - 320, 50, 50, "yellow"));
-        coloredBlocks.add(new ColoredBlock(780, HEIGHT - 380, 50, 50, "purple"));
-
-        platforms.add(new Platform(150, HEIGHT - 150, 100, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(250, HEIGHT - 250, 100, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(350, HEIGHT - 350, 100, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(500, HEIGHT - 300, 150, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(700, HEIGHT - 400, 150, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(900, HEIGHT - 300, 150, 20, Color.rgb(100, 100, 100)));
-
-        enemies.add(new Enemy(200, HEIGHT - 200, "fire"));
-        enemies.add(new Enemy(400, HEIGHT - 400, "electric"));
-        enemies.add(new Enemy(650, HEIGHT - 350, "ice"));
-        enemies.add(new Enemy(950, HEIGHT - 350, "normal"));
-
-        goal = new Goal(1000, HEIGHT - 400);
-    }
-
-    private void createLevel5() {
-        // Master challenge - complex but memory efficient
-        
-        // Create vertical layers with strategic gaps
-        // Layer 1: Ground level stepping stones
-        platforms.add(new Platform(150, HEIGHT - 120, 90, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(300, HEIGHT - 140, 80, 20, Color.rgb(100, 100, 100)));
-        
-        // Layer 2: Lower mid-level
-        platforms.add(new Platform(120, HEIGHT - 220, 85, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(280, HEIGHT - 240, 70, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(420, HEIGHT - 230, 90, 20, Color.rgb(100, 100, 100)));
-        
-        // Layer 3: Mid-level with gaps
-        platforms.add(new Platform(180, HEIGHT - 330, 75, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(340, HEIGHT - 350, 65, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(480, HEIGHT - 340, 80, 20, Color.rgb(100, 100, 100)));
-        
-        // Layer 4: Upper platforms
-        platforms.add(new Platform(600, HEIGHT - 260, 90, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(760, HEIGHT - 300, 85, 20, Color.rgb(100, 100, 100)));
-        
-        // Layer 5: High level path
-        platforms.add(new Platform(220, HEIGHT - 450, 80, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(380, HEIGHT - 470, 70, 20, Color.rgb(100, 100, 100)));
-        
-        // Layer 6: Final approach
-        platforms.add(new Platform(880, HEIGHT - 380, 75, 20, Color.rgb(100, 100, 100)));
-        platforms.add(new Platform(1000, HEIGHT - 460, 90, 20, Color.rgb(100, 100, 100)));
-        
-        // Water hazard
-        platforms.add(new Platform(650, HEIGHT - 180, 110, 50, Color.rgb(255, 85, 0)));        
-        // Strategic color placement
-        coloredBlocks.add(new ColoredBlock(160, HEIGHT - 180, 50, 50, "red"));
-        coloredBlocks.add(new ColoredBlock(235, HEIGHT - 510, 50, 50, "yellow"));
-        coloredBlocks.add(new ColoredBlock(350, HEIGHT - 410, 50, 50, "blue"));
-        coloredBlocks.add(new ColoredBlock(160, HEIGHT - 280, 50, 50, "red"));
-        coloredBlocks.add(new ColoredBlock(780, HEIGHT - 360, 50, 50, "purple"));
-        
-        // Enemy placement - total 10 enemies
-        enemies.add(new Enemy(220, HEIGHT - 100, "fire"));
-        enemies.add(new Enemy(380, HEIGHT - 100, "normal"));
-        enemies.add(new Enemy(190, HEIGHT - 370, "electric"));
-        enemies.add(new Enemy(350, HEIGHT - 390, "ice"));
-        enemies.add(new Enemy(490, HEIGHT - 380, "fire"));
-        enemies.add(new Enemy(620, HEIGHT - 300, "electric"));
-        enemies.add(new Enemy(770, HEIGHT - 340, "ice"));
-        enemies.add(new Enemy(230, HEIGHT - 490, "fire"));
-        enemies.add(new Enemy(890, HEIGHT - 420, "electric"));
-        enemies.add(new Enemy(1020, HEIGHT - 500, "ice"));
-        
-        // Goal placement
-        goal = new Goal(1025, HEIGHT - 520);
-    }
-    public void render(GraphicsContext gc) 
+    /**
+     * Copies the dynamic state into s. Allocates nothing once s has grown to
+     * the largest state it has held.
+     */
+    void saveTo(GameSnapshot s) {
+        s.level = level;
+        s.ticks = ticks;
+        s.powerReadyTick = powerReadyTick;
+        s.rewindReadyTick = rewindReadyTick;
+        s.lives = lives;
+        s.totalScore = totalScore;
+        s.gameWon = gameWon;
+        s.gameOver = gameOver;
+        s.gameOverTimer = gameOverTimer;
+        s.enemiesAtLevelStart = enemiesAtLevelStart;
+        s.enemiesKilledThisLevel = enemiesKilledThisLevel;
+        s.starsEarnedThisLevel = starsEarnedThisLevel;
+
+        s.playerX = player.x;
+        s.playerY = player.y;
+        s.playerVx = player.vx;
+        s.playerVy = player.vy;
+        s.playerPrevX = player.prevX;
+        s.playerPrevY = player.prevY;
+        s.playerOnGround = player.onGround;
+        s.playerColor = player.currentColor.ordinal();
+        s.playerHasShield = player.hasShield;
+        s.playerShieldTimer = player.shieldTimer;
+        s.cameraLeft = camera.left();
+        s.cameraPrevLeft = camera.left(0);
+        s.goalFrame = goal.frame;
+
+        s.ensureCapacity(enemies.size(), coloredBlocks.size(), projectiles.size(), 0);
+        s.enemyCount = enemies.size();
+        for (int i = 0; i < s.enemyCount; i++) {
+            Enemy e = enemies.get(i);
+            s.enemyX[i] = e.x;
+            s.enemyY[i] = e.y;
+            s.enemyVx[i] = e.vx;
+            s.enemyPrevX[i] = e.prevX;
+            s.enemyPrevY[i] = e.prevY;
+            s.enemyHealth[i] = e.health;
+            s.enemyType[i] = (byte) e.type.ordinal();
+        }
+        s.blockCount = coloredBlocks.size();
+        for (int i = 0; i < s.blockCount; i++) {
+            ColoredBlock b = coloredBlocks.get(i);
+            s.blockX[i] = b.x;
+            s.blockY[i] = b.y;
+            s.blockWidth[i] = b.width;
+            s.blockHeight[i] = b.height;
+            s.blockColor[i] = (byte) b.color.ordinal();
+            s.blockAbsorbed[i] = b.absorbed;
+            s.blockPulse[i] = b.pulseFrame;
+        }
+        s.projectileCount = projectiles.size();
+        for (int i = 0; i < s.projectileCount; i++) {
+            Projectile p = projectiles.get(i);
+            s.projectileX[i] = p.x;
+            s.projectileY[i] = p.y;
+            s.projectileVx[i] = p.vx;
+            s.projectileVy[i] = p.vy;
+            s.projectilePrevX[i] = p.prevX;
+            s.projectilePrevY[i] = p.prevY;
+            s.projectileType[i] = (byte) p.type.ordinal();
+            s.projectileDamage[i] = p.damage;
+        }
+        chunks.saveTo(s);
+        particles.save(s.particles);
+    }
+
+    /**
+     * Puts back a snapshot taken on the current level. The tick counter and
+     * cooldowns keep running; entity objects are taken from the pools.
+     */
+    void loadFrom(GameSnapshot s) {
+        lives = s.lives;
+        totalScore = s.totalScore;
+        gameWon = s.gameWon;
+        gameOver = s.gameOver;
+        gameOverTimer = s.gameOverTimer;
+        enemiesAtLevelStart = s.enemiesAtLevelStart;
+        enemiesKilledThisLevel = s.enemiesKilledThisLevel;
+        starsEarnedThisLevel = s.starsEarnedThisLevel;
+
+        player.x = s.playerX;
+        player.y = s.playerY;
+        player.vx = s.playerVx;
+        player.vy = s.playerVy;
+        player.prevX = s.playerPrevX;
+        player.prevY = s.playerPrevY;
+        player.onGround = s.playerOnGround;
+        player.currentColor = POWER_COLORS[s.playerColor];
+        player.hasShield = s.playerHasShield;
+        player.shieldTimer = s.playerShieldTimer;
+        camera.restore(s.cameraLeft, s.cameraPrevLeft);
+        goal.frame = s.goalFrame;
+
+        releaseAll(enemies, enemyPool);
+        for (int i = 0; i < s.enemyCount; i++) {
+            Enemy e = obtainEnemy(s.enemyX[i], s.enemyY[i], ELEMENTS[s.enemyType[i]]);
+            e.vx = s.enemyVx[i];
+            e.prevX = s.enemyPrevX[i];
+            e.prevY = s.enemyPrevY[i];
+            e.health = s.enemyHealth[i];
+            enemies.add(e);
+        }
+        releaseAll(coloredBlocks, blockPool);
+        for (int i = 0; i < s.blockCount; i++) {
+            ColoredBlock b = obtainBlock(s.blockX[i], s.blockY[i], s.blockWidth[i], s.blockHeight[i],
+                    POWER_COLORS[s.blockColor[i]]);
+            b.absorbed = s.blockAbsorbed[i];
+            b.pulseFrame = s.blockPulse[i];
+            coloredBlocks.add(b);
+        }
+        releaseAll(projectiles, projectilePool);
+        for (int i = 0; i < s.projectileCount; i++) {
+            Projectile p = obtainProjectile(s.projectileX[i], s.projectileY[i], s.projectileVx[i],
+                    s.projectileVy[i], ELEMENTS[s.projectileType[i]], s.projectileDamage[i]);
+            p.prevX = s.projectilePrevX[i];
+            p.prevY = s.projectilePrevY[i];
+            projectiles.add(p);
+        }
+        chunks.loadFrom(s);
+        particles.restore(s.particles);
+    }
+
+    /**
+     * Serializes everything the simulation depends on, checkpoints included,
+     * for replay keyframes. The level's geometry is not included;
+     * restoreState() rebuilds it from the level number.
+     */
+    public byte[] captureState() {
+        GameSnapshot now = new GameSnapshot();
+        saveTo(now);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(STATE_VERSION);
+            now.write(out);
+            levelStart.write(out);
+            out.writeInt(checkpoints.size());
+            for (int i = checkpoints.size() - 1; i >= 0; i--) {
+                checkpoints.get(i).write(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Puts the game back into a state from captureState(). Throws
+     * IllegalArgumentException, leaving the game as it was, if the bytes are
+     * not such a state.
+     */
+    public void restoreState(byte[] state) {
+        GameSnapshot now = new GameSnapshot();
+        GameSnapshot start = new GameSnapshot();
+        GameSnapshot[] saved;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(state))) {
+            if (in.readInt() != STATE_VERSION) {
+                throw new IllegalArgumentException("unsupported game state version");
+            }
+            now.read(in);
+            start.read(in);
+            int n = in.readInt();
+            if (n < 0 || n > CHECKPOINT_SLOTS) {
+                throw new IllegalArgumentException("bad checkpoint count " + n);
+            }
+            saved = new GameSnapshot[n];
+            for (int i = 0; i < n; i++) {
+                saved[i] = new GameSnapshot();
+                saved[i].read(in);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("corrupt game state", e);
+        }
+
+        level = now.level;
+        // Geometry and the goal come from the level; its entities are replaced by loadFrom()
+        installLevel(prefetcher.take(level));
+        loadFrom(now);
+        ticks = now.ticks;
+        powerReadyTick = now.powerReadyTick;
+        rewindReadyTick = now.rewindReadyTick;
+        ratingLine = "Rating: " + buildStarsText(starsEarnedThisLevel);
+        levelStart = start;
+        checkpoints.clear();
+        for (GameSnapshot s : saved) {
+            checkpoints.push(s);
+        }
+        prefetcher.prefetchNext(level);
+    }
+
+    /** Where render(alpha) sends frames; RenderSink.NONE draws nothing. */
+    public void setRenderSink(RenderSink renderSink)
+    {
+        this.renderSink = renderSink != null ? renderSink : RenderSink.NONE;
+    }
+
+    /**
+     * Presents the current state to the render sink. With the default
+     * RenderSink.NONE this does nothing, so loops can call it on headless games too.
+     */
+    public void render(double alpha)
+    {
+        renderSink.present(this, alpha);
+    }
+
+    public void render(GraphicsContext gc)
+    {
+        render(gc, 1.0);
+    }
+
+    /**
+     * Draws the current state, interpolating moving entities between their
+     * previous and current tick positions by alpha (0 = previous, 1 = current).
+     * Everything is redrawn into the one context; see the layered overload for
+     * the per-frame path.
+     */
+    public void render(GraphicsContext gc, double alpha)
+    {
+        checkCanRender();
+        double viewLeft = viewLeft(alpha);
+        drawStaticLayer(gc, viewLeft);
+        drawDynamicLayer(gc, alpha, viewLeft);
+        drawHudLayer(gc);
+    }
+
+    /**
+     * Draws into three stacked canvases of the game's size, bottom to top: the
+     * static world (background and platforms), the moving entities, and the HUD
+     * with the game-over / level-complete overlays. The static layer is only
+     * redrawn after the level's platforms change or the camera moves, and the HUD only when level,
+     * score, lives, power or the overlay state change; the dynamic layer is
+     * cleared and redrawn every call.
+     */
+    public void render(GraphicsContext staticGc, GraphicsContext dynamicGc, GraphicsContext hudGc, double alpha)
+    {
+        checkCanRender();
+        double viewLeft = viewLeft(alpha);
+        if (bakedStaticVersion != staticVersion || bakedViewLeft != viewLeft) {
+            drawStaticLayer(staticGc, viewLeft);
+            bakedStaticVersion = staticVersion;
+            bakedViewLeft = viewLeft;
+        }
+
+        dynamicGc.clearRect(0, 0, WIDTH, HEIGHT);
+        drawDynamicLayer(dynamicGc, alpha, viewLeft);
+
+        if (isHudStale()) {
+            hudGc.clearRect(0, 0, WIDTH, HEIGHT);
+            drawHudLayer(hudGc);
+            rememberHudState();
+        }
+    }
+
+    private void checkCanRender()
+    {
+        if (isHeadless()) {
+            throw new IllegalStateException("render() is not available on a headless game");
+        }
+        if (text == null) {
+            setUpText();
+        }
+    }
+
+    // Camera position for this frame, on whole pixels so scrolling does not shimmer
+    private double viewLeft(double alpha)
     {
-    
-        if (resourceManager.hasImage("background") && level % 2 == 0) 
+        return Math.rint(camera.left(alpha));
+    }
+
+    private void drawStaticLayer(GraphicsContext gc, double viewLeft)
+    {
+        ImageCache.Handle backgroundHandle = level % 2 == 0 ? evenLevelBackground : oddLevelBackground;
+        Image background = backgroundHandle == null ? null : backgroundHandle.get();
+        if (background != null) 
         {
-            gc.drawImage(resourceManager.getImage("background"), 0, 0, WIDTH, HEIGHT);
+            gc.drawImage(background, 0, 0, WIDTH, HEIGHT);
         } 
-        else if (resourceManager.hasImage("background2") && level % 2 != 0) 
+        else 
         {
-            gc.drawImage(resourceManager.getImage("background2"), 0, 0, WIDTH, HEIGHT);
-        } 
-        // else 
-        // {
-        //     gc.setFill(Color.rgb(200, 200, 200));
-        //     gc.fillRect(0, 0, WIDTH, HEIGHT);
-        // }
-        // // Draw background
-        // if (resourceManager.hasImage("background")) {
-        //     gc.drawImage(resourceManager.getImage("background"), 0, 0, WIDTH, HEIGHT);
-        // } else {
-        //     gc.setFill(Color.rgb(200, 200, 200));
-        //     gc.fillRect(0, 0, WIDTH, HEIGHT);
-        // }
-
-        // Draw platforms
-        for (Platform p : platforms) {
-            p.draw(gc, resourceManager);
+            // Nothing to cover the previous level with
+            gc.clearRect(0, 0, WIDTH, HEIGHT);
         }
 
+        // Draw platforms in view, in level order
+        int n = collectVisiblePlatforms(viewLeft, viewLeft + WIDTH);
+        gc.save();
+        gc.translate(-viewLeft, 0);
+        for (int i = 0; i < n; i++) {
+            platforms.get(visiblePlatforms[i]).draw(gc, resourceManager);
+        }
+        gc.restore();
+    }
+
+    // List indexes of the solid and water platforms overlapping [left, right], sorted
+    private int collectVisiblePlatforms(double left, double right)
+    {
+        int n = 0;
+        for (PlatformIndex index : new PlatformIndex[] { solidPlatforms, waterPlatforms }) {
+            int hits = index.query(left, 0, right, HEIGHT);
+            if (n + hits > visiblePlatforms.length) {
+                visiblePlatforms = Arrays.copyOf(visiblePlatforms, Math.max(n + hits, visiblePlatforms.length * 2));
+            }
+            for (int i = 0; i < hits; i++) {
+                visiblePlatforms[n++] = index.listIndex(i);
+            }
+        }
+        Arrays.sort(visiblePlatforms, 0, n);
+        return n;
+    }
+
+    private void drawDynamicLayer(GraphicsContext gc, double alpha, double viewLeft)
+    {
+        renderAlpha = alpha;
+        double viewRight = viewLeft + WIDTH;
+        gc.save();
+        gc.translate(-viewLeft, 0);
+
         // Draw colored blocks
         for (ColoredBlock cb : coloredBlocks) {
-            cb.draw(gc, this, resourceManager);
+            if (cb.x + cb.width + 5 >= viewLeft && cb.x - 5 <= viewRight) {
+                cb.draw(gc, this, resourceManager);
+            }
         }
 
         // Draw particles
-        for (Particle p : particles) {
-            p.draw(gc, this, resourceManager);
-        }
+        particles.draw(gc, resourceManager, renderAlpha, viewLeft, viewRight);
 
         // Draw projectiles
         for (Projectile proj : projectiles) {
-            proj.draw(gc, resourceManager);
+            if (proj.x + 5 >= viewLeft && proj.x - 5 <= viewRight) {
+                proj.draw(gc, resourceManager);
+            }
         }
 
         // Draw enemies
         for (Enemy e : enemies) {
-            e.draw(gc, resourceManager);
+            if (e.x + 30 >= viewLeft && e.x <= viewRight) {
+                e.draw(gc, resourceManager);
+            }
         }
 
         // Draw goal
-        goal.draw(gc, resourceManager);
+        if (goal.x + 50 >= viewLeft && goal.x <= viewRight) {
+            goal.draw(gc, resourceManager);
+        }
 
         // Draw player
         player.draw(gc, this, resourceManager);
+        gc.restore();
+    }
 
+    private void drawHudLayer(GraphicsContext gc)
+    {
         // Draw UI
         drawUI(gc);
 
         // Game state overlays
         if (gameOver) 
         {
-            gc.setFill(Color.rgb(0, 0, 0, 0.75));
+            gc.setFill(GAME_OVER_SHADE);
             gc.fillRect(0, 0, WIDTH, HEIGHT);
             gc.setFill(Color.WHITE);
-            gc.setFont(Font.font("Arial", FontWeight.BOLD, 60));
-            drawCenteredString(gc, "GAME OVER", WIDTH / 2.0, HEIGHT / 2.0 - 200);
+            text.drawCentered(gc, gameOverFont, "GAME OVER", WIDTH / 2.0, HEIGHT / 2.0 - 200);
 
             // Final score
-            gc.setFont(Font.font("Arial", FontWeight.BOLD, 30));
             gc.setFill(Color.LIGHTGOLDENRODYELLOW);
-            drawCenteredString(gc, "Player: " + playerName, WIDTH / 2.0, HEIGHT / 2.0 - 140);
-            drawCenteredString(gc, "Total Points: " + totalScore, WIDTH / 2.0, HEIGHT / 2.0 - 100);
+            text.drawCentered(gc, finalScoreFont, playerLine, WIDTH / 2.0, HEIGHT / 2.0 - 140);
+            text.drawCentered(gc, finalScoreFont, totalPointsLabel.text(totalScore), WIDTH / 2.0, HEIGHT / 2.0 - 100);
 
             // Leaderboard
-            gc.setFont(Font.font("Arial", FontWeight.BOLD, 26));
             gc.setFill(Color.WHITE);
-            drawCenteredString(gc, "Leaderboard (Top 5)", WIDTH / 2.0, HEIGHT / 2.0 - 40);
+            text.drawCentered(gc, leaderboardTitleFont, "Leaderboard (Top 5)", WIDTH / 2.0, HEIGHT / 2.0 - 40);
 
-            gc.setFont(Font.font("Arial", FontWeight.NORMAL, 22));
-            int rank = 1;
             int yOffset = -10;
-            for (LeaderboardEntry entry : getTopLeaderboardEntries(5)) {
-                String line = rank + ". " + entry.name + " - " + entry.score;
-                drawCenteredString(gc, line, WIDTH / 2.0, HEIGHT / 2.0 + yOffset);
+            for (int i = 0; i < leaderboardLines.size(); i++) {
+                text.drawCentered(gc, leaderboardFont, leaderboardLines.get(i), WIDTH / 2.0, HEIGHT / 2.0 + yOffset);
                 yOffset += 28;
-                rank++;
             }
 
-            gc.setFont(Font.font("Arial", FontWeight.NORMAL, 20));
             gc.setFill(Color.LIGHTGRAY);
-            drawCenteredString(gc, "Restarting at Level 1...", WIDTH / 2.0, HEIGHT / 2.0 + yOffset + 20);
+            text.drawCentered(gc, footerFont, "Restarting at Level 1...", WIDTH / 2.0, HEIGHT / 2.0 + yOffset + 20);
         } else if (gameWon) {
-            gc.setFill(Color.rgb(0, 0, 0, 0.7));
+            gc.setFill(LEVEL_COMPLETE_SHADE);
             gc.fillRect(0, 0, WIDTH, HEIGHT);
             gc.setFill(Color.YELLOW);
-            gc.setFont(Font.font("Arial", FontWeight.BOLD, 54));
-            drawCenteredString(gc, "FIN..! Level Complete!", WIDTH / 2.0, HEIGHT / 2.0 - 160);
+            text.drawCentered(gc, levelCompleteFont, "FIN..! Level Complete!", WIDTH / 2.0, HEIGHT / 2.0 - 160);
 
             // Star rating
-            gc.setFont(Font.font("Arial", FontWeight.BOLD, 40));
             gc.setFill(Color.GOLD);
-            String starsText = buildStarsText(starsEarnedThisLevel);
-            drawCenteredString(gc, "Rating: " + starsText, WIDTH / 2.0, HEIGHT / 2.0 - 110);
+            text.drawCentered(gc, ratingFont, ratingLine, WIDTH / 2.0, HEIGHT / 2.0 - 110);
 
             // // Kills info
             // gc.setFont(Font.font("Arial", FontWeight.NORMAL, 24));
@@ -369,22 +814,40 @@ public class EscapeRoomGame
             // drawCenteredString(gc, killsInfo, WIDTH / 2.0, HEIGHT / 2.0 - 70);
 
             // Instructions depending on stars
-            gc.setFont(Font.font("Arial", FontWeight.NORMAL, 30));
             if (starsEarnedThisLevel <= 1) {
-                drawCenteredString(gc, "You can do Better", WIDTH / 2.0, HEIGHT / 2.0 + 10);
-                drawCenteredString(gc, "Press SPACE to replay this level", WIDTH / 2.0, HEIGHT / 2.0 + 45);
+                text.drawCentered(gc, instructionFont, "You can do Better", WIDTH / 2.0, HEIGHT / 2.0 + 10);
+                text.drawCentered(gc, instructionFont, "Press SPACE to replay this level", WIDTH / 2.0, HEIGHT / 2.0 + 45);
             } 
             else 
                 {
                     
                 
                     // drawCenteredString(gc, "You earned " + starsEarnedThisLevel + " stars!", WIDTH / 2.0, HEIGHT / 2.0 + 10);
-                    drawCenteredString(gc, "Press SPACE for next level", WIDTH / 2.0, HEIGHT / 2.0 + 45);
+                    text.drawCentered(gc, instructionFont, "Press SPACE for next level", WIDTH / 2.0, HEIGHT / 2.0 + 45);
                 }
                 
         }
     }
 
+    private boolean isHudStale()
+    {
+        return !hudDrawn || hudLevel != level || hudScore != totalScore || hudLives != lives
+                || hudPower != player.currentColor || hudGameOver != gameOver || hudGameWon != gameWon
+                || hudStars != starsEarnedThisLevel;
+    }
+
+    private void rememberHudState()
+    {
+        hudDrawn = true;
+        hudLevel = level;
+        hudScore = totalScore;
+        hudLives = lives;
+        hudPower = player.currentColor;
+        hudGameOver = gameOver;
+        hudGameWon = gameWon;
+        hudStars = starsEarnedThisLevel;
+    }
+
     private void drawUI(GraphicsContext gc) 
     {
         // Level info
@@ -396,30 +859,27 @@ public class EscapeRoomGame
         {
             gc.setFill(Color.WHITE);
         } 
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 24));
-        gc.fillText("Level: " + level, 20, 30);
+        gc.setFont(hudTitleFont);
+        gc.fillText(levelLabel.text(level), 20, 30);
 
         // Score
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 20));
-        gc.fillText("Score: " + totalScore, 20, 60);
+        gc.setFont(hudFont);
+        gc.fillText(scoreLabel.text(totalScore), 20, 60);
 
         // Current color power
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 20));
         gc.fillText("Power: ", 20, 90);
-        if (!player.currentColor.isEmpty()) {
-            Color powerColor = getColorFromString(player.currentColor);
-            gc.setFill(powerColor);
+        if (player.currentColor != PowerColor.NONE) {
+            gc.setFill(player.currentColor.color);
             gc.fillRect(110, 70, 30, 30);
             gc.setStroke(Color.BLACK);
             gc.strokeRect(110, 70, 30, 30);
             gc.setFill(Color.BLACK);
-            gc.fillText(player.currentColor.toUpperCase(), 150, 90);
+            gc.fillText(player.currentColor.label, 150, 90);
         } else {
             gc.fillText("None", 110, 90);
         }
 
         // Lives indicator
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 20));
         if (level % 2 == 0) 
         {
             gc.setFill(Color.BLACK);
@@ -438,15 +898,12 @@ public class EscapeRoomGame
         }
 
         // Color guide
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+        gc.setFont(hudSmallFont);
         gc.fillText("Colors:", 20, 140);
 
-        String[] colorNames = {"RED: Fire", "BLUE: Ice/Water", "YELLOW: Electric", "PURPLE: Shield"};
-        String[] colorKeys = {"red", "blue", "yellow", "purple"};
-
-        for (int i = 0; i < colorNames.length; i++) 
+        for (int i = 0; i < GUIDE_COLORS.length; i++) 
         {
-            gc.setFill(getColorFromString(colorKeys[i]));
+            gc.setFill(GUIDE_COLORS[i].color);
             gc.fillRect(20, 150 + i * 25, 20, 20);
             if (level % 2 == 0) 
             gc.setFill(Color.BLACK);
@@ -457,28 +914,130 @@ public class EscapeRoomGame
             gc.setFill(Color.BLACK);
             else 
             gc.setFill(Color.WHITE);
-            gc.fillText(colorNames[i], 45, 165 + i * 25);
+            gc.fillText(GUIDE_NAMES[i], 45, 165 + i * 25);
         }
     }
 
-    private void drawCenteredString(GraphicsContext gc, String text, double x, double y) {
-        Text textNode = new Text(text);
-        textNode.setFont(gc.getFont());
-        double width = textNode.getLayoutBounds().getWidth();
-        gc.fillText(text, x - width / 2, y);
+    private void setUpText() {
+        text = new TextRenderer();
+        hudTitleFont = text.font("Arial", FontWeight.BOLD, 24);
+        hudFont = text.font("Arial", FontWeight.BOLD, 20);
+        hudSmallFont = text.font("Arial", FontWeight.BOLD, 14);
+        gameOverFont = text.font("Arial", FontWeight.BOLD, 60);
+        finalScoreFont = text.font("Arial", FontWeight.BOLD, 30);
+        leaderboardTitleFont = text.font("Arial", FontWeight.BOLD, 26);
+        leaderboardFont = text.font("Arial", FontWeight.NORMAL, 22);
+        footerFont = text.font("Arial", FontWeight.NORMAL, 20);
+        levelCompleteFont = text.font("Arial", FontWeight.BOLD, 54);
+        ratingFont = text.font("Arial", FontWeight.BOLD, 40);
+        instructionFont = text.font("Arial", FontWeight.NORMAL, 30);
     }
 
-    public Color getColorFromString(String color) {
-        switch (color) {
-            case "red": return Color.RED;
-            case "blue": return Color.BLUE;
-            case "yellow": return Color.YELLOW;
-            case "purple": return Color.rgb(148, 0, 211);
-            default: return Color.GRAY;
-        }
+    /** Applies one tick's GameInput mask, then runs the tick. */
+    public void update(int input) {
+        applyInput(input);
+        update();
     }
 
     public void update() {
+        ticks++;
+        // The first tick writes the run's starting level over whatever save was there,
+        // after the screen has set the player name or resumed a save
+        if (savesProgress && !savedThisRun) {
+            saveProgress(level);
+        }
+        tick();
+        // Sounds cued this tick (and by input since the last one) go out together
+        audio.endTick();
+    }
+
+    // Presses first, as their key events arrived before the tick, then held movement
+    private void applyInput(int input) {
+        if ((input & GameInput.BONUS_LIFE) != 0) {
+            grantBonusLife();
+        }
+        if (gameOver) {
+            return;
+        }
+        if (gameWon) {
+            if ((input & GameInput.ACTION) != 0) {
+                continueAfterLevel();
+            }
+            return;
+        }
+        if ((input & GameInput.JUMP) != 0) {
+            player.jump();
+        }
+        if ((input & GameInput.ACTION) != 0 && ticks >= powerReadyTick) {
+            player.usePower();
+            powerReadyTick = ticks + POWER_COOLDOWN_TICKS;
+        }
+        if ((input & GameInput.ABSORB) != 0) {
+            absorbNearestBlock();
+        }
+        if ((input & GameInput.REWIND) != 0 && ticks >= rewindReadyTick) {
+            rewind();
+            return;
+        }
+        if ((input & GameInput.LEFT) != 0) player.moveLeft();
+        if ((input & GameInput.RIGHT) != 0) player.moveRight();
+    }
+
+    // Only allow progression when at least two stars were earned; otherwise replay the level
+    private void continueAfterLevel() {
+        if (starsEarnedThisLevel > 1) {
+            level++;
+            initLevel();
+        } else {
+            retryLevel();
+        }
+    }
+
+    /** Restarts the current level from its start checkpoint, keeping lives and score. */
+    public void retryLevel() {
+        int keepLives = lives;
+        int keepScore = totalScore;
+        loadFrom(levelStart);
+        lives = keepLives;
+        totalScore = keepScore;
+        checkpoints.clear();
+    }
+
+    /**
+     * Goes back to the newest checkpoint at least REWIND_TICKS old, or to the
+     * level start when the level is younger than that. Lives and score lost
+     * since then come back too.
+     */
+    private void rewind() {
+        GameSnapshot target = levelStart;
+        int newer = checkpoints.size();
+        for (int i = 0; i < checkpoints.size(); i++) {
+            if (checkpoints.get(i).ticks <= ticks - REWIND_TICKS) {
+                target = checkpoints.get(i);
+                newer = i;
+                break;
+            }
+        }
+        loadFrom(target);
+        // The target stays as the newest checkpoint
+        checkpoints.drop(newer);
+        rewindReadyTick = ticks + REWIND_COOLDOWN_TICKS;
+        audio.playSound("power_use", 0.6);
+    }
+
+    private void absorbNearestBlock() {
+        for (ColoredBlock cb : coloredBlocks) {
+            if (!cb.absorbed &&
+                    Math.abs(player.x - cb.x) < ABSORB_RANGE &&
+                    Math.abs(player.y - cb.y) < ABSORB_RANGE) {
+                player.absorbColor(cb.color);
+                cb.absorbed = true;
+                break;
+            }
+        }
+    }
+
+    private void tick() {
         if (gameOver) 
         {
      
@@ -487,70 +1046,182 @@ public class EscapeRoomGame
 
         if (gameWon) return;
 
-        player.update(platforms);
+        updatePlayer();
+        updateEnemies();
+        updateProjectiles();
+        updateParticles();
+
+        // Check goal
+        if (!gameWon && goal.collidesWith(player)) {
+            calculateStarsForCurrentLevel();
+            gameWon = true;
+            saveProgress(starsEarnedThisLevel > 1 ? level + 1 : level);
+            audio.playSound("level_complete", 0.5);
+        }
+
+        if (!gameOver && !gameWon && ticks % CHECKPOINT_TICKS == 0) {
+            saveTo(checkpoints.push());
+        }
+    }
+
+    void updatePlayer() {
+        player.update(solidPlatforms);
+
+        // Follow the player and bring nearby chunks in
+        camera.follow(player.x + PLAYER_SIZE / 2, worldWidth);
+        chunks.stream(camera.left(), camera.right());
+
+        // Animation counters advance per tick so they run at the same speed on any display
+        for (ColoredBlock cb : coloredBlocks) {
+            cb.pulseFrame++;
+        }
+        goal.frame++;
 
         if (isPlayerInWater())
         {
             handlePlayerHit();
         }
+    }
 
-        // Update enemies
-        for (int i = enemies.size() - 1; i >= 0; i--) {
+    void updateEnemies() {
+        // Move enemies and drop the dead ones, compacting the list in place
+        int alive = 0;
+        for (int i = 0; i < enemies.size(); i++) {
             Enemy enemy = enemies.get(i);
-            enemy.update(platforms, player);
-
-            // Check collision with player
-            if (enemy.collidesWith(player) && !player.hasShield) {
-                handlePlayerHit();
-            }
+            enemy.update(player);
 
             if (enemy.health <= 0) {
+                enemyPool.add(enemy);
                 enemiesKilledThisLevel++;
                 totalScore += POINTS_PER_ENEMY;
 
-                for (int j = 0; j < 10; j++) {
-                    particles.add(new Particle(enemy.x + 15, enemy.y + 15, enemy.type));
-                }
-                resourceManager.playSound("enemy_death", 0.4);
-                enemies.remove(i);
+                // Death puffs are plain gray whatever the enemy's element
+                deathBurst.emit(enemy.x + ENEMY_HALF_SIZE, enemy.y + ENEMY_HALF_SIZE, PowerColor.NONE);
+                audio.playSound("enemy_death", 0.4);
+            } else {
+                enemies.set(alive++, enemy);
             }
         }
+        truncate(enemies, alive);
+        rebuildEnemyGrid();
+
+        // Check collision with player
+        if (!player.hasShield && firstEnemyNear(player.x + PLAYER_SIZE / 2, player.y + PLAYER_SIZE / 2,
+                PLAYER_HIT_RANGE, null) >= 0) {
+            handlePlayerHit();
+        }
+    }
 
-        // Update projectiles
-        for (int i = projectiles.size() - 1; i >= 0; i--) {
+    /** Re-buckets the enemies where they are now; updateEnemies() does this every tick. */
+    void rebuildEnemyGrid() {
+        enemyGrid.setOrigin(chunks.residentLeft(), 0);
+        enemyGrid.reset(enemies.size());
+        for (int i = 0; i < enemies.size(); i++) {
+            Enemy enemy = enemies.get(i);
+            enemyGrid.put(i, enemy.x + ENEMY_HALF_SIZE, enemy.y + ENEMY_HALF_SIZE);
+        }
+        enemyGrid.build();
+    }
+
+    void updateProjectiles() {
+        int alive = 0;
+        for (int i = 0; i < projectiles.size(); i++) {
             Projectile proj = projectiles.get(i);
             proj.update();
 
-            if (proj.x < 0 || proj.x > WIDTH || proj.y < 0 || proj.y > HEIGHT) {
-                projectiles.remove(i);
+            if (proj.x < camera.left() || proj.x > camera.right() || proj.y < 0 || proj.y > HEIGHT) {
+                projectilePool.add(proj);
                 continue;
             }
 
             // Check collision with enemies
-            for (Enemy enemy : enemies) {
-                if (proj.collidesWith(enemy)) {
-                    enemy.takeDamage(proj.damage, proj.type);
-                    resourceManager.playSound("hit", 0.3);
-                    projectiles.remove(i);
-                    break;
-                }
+            int hit = firstEnemyNear(proj.x, proj.y, PROJECTILE_HIT_RANGE, proj);
+            if (hit >= 0) {
+                enemies.get(hit).takeDamage(proj.damage, proj.type);
+                audio.playSound("hit", 0.3);
+                projectilePool.add(proj);
+                continue;
             }
+            projectiles.set(alive++, proj);
         }
+        truncate(projectiles, alive);
+    }
 
-        // Update particles
-        for (int i = particles.size() - 1; i >= 0; i--) {
-            particles.get(i).update();
-            if (particles.get(i).life <= 0) {
-                particles.remove(i);
+    /**
+     * Index of the first enemy (in list order) that collides with the given
+     * projectile, or with the player when proj is null, using the broadphase
+     * grid to find candidates. Returns -1 when nothing is in range.
+     */
+    private int firstEnemyNear(double x, double y, double range, Projectile proj) {
+        int candidates = enemyGrid.query(x - range, y - range, x + range, y + range);
+        int first = -1;
+        for (int k = 0; k < candidates; k++) {
+            int index = enemyGrid.result(k);
+            if (first >= 0 && index > first) {
+                continue;
+            }
+            Enemy enemy = enemies.get(index);
+            boolean hit = proj != null ? proj.collidesWith(enemy) : enemy.collidesWith(player);
+            if (hit) {
+                first = index;
             }
         }
+        return first;
+    }
 
-        // Check goal
-        if (!gameWon && goal.collidesWith(player)) {
-            calculateStarsForCurrentLevel();
-            gameWon = true;
-            resourceManager.playSound("level_complete", 0.5);
+    Enemy obtainEnemy(double x, double y, Element type) {
+        if (enemyPool.isEmpty()) {
+            return new Enemy(x, y, type);
         }
+        Enemy e = enemyPool.remove(enemyPool.size() - 1);
+        e.reset(x, y, type);
+        return e;
+    }
+
+    ColoredBlock obtainBlock(int x, int y, int width, int height, PowerColor color) {
+        if (blockPool.isEmpty()) {
+            return new ColoredBlock(x, y, width, height, color);
+        }
+        ColoredBlock b = blockPool.remove(blockPool.size() - 1);
+        b.reset(x, y, width, height, color);
+        return b;
+    }
+
+    Projectile obtainProjectile(double x, double y, double vx, double vy, Element type, int damage) {
+        if (projectilePool.isEmpty()) {
+            return new Projectile(x, y, vx, vy, type, damage);
+        }
+        Projectile p = projectilePool.remove(projectilePool.size() - 1);
+        p.reset(x, y, vx, vy, type, damage);
+        return p;
+    }
+
+    /** Hands entities that left the world back for reuse; they must no longer be referenced. */
+    void releaseEnemies(ArrayList<Enemy> released) {
+        releaseAll(released, enemyPool);
+    }
+
+    void releaseBlocks(ArrayList<ColoredBlock> released) {
+        releaseAll(released, blockPool);
+    }
+
+    // Moves every element to the pool and empties the list, without allocating
+    private static <T> void releaseAll(ArrayList<T> list, ArrayList<T> pool) {
+        for (int i = 0; i < list.size(); i++) {
+            pool.add(list.get(i));
+        }
+        list.clear();
+    }
+
+    // Drops list elements from index size onwards without allocating
+    private static void truncate(ArrayList<?> list, int size) {
+        for (int i = list.size() - 1; i >= size; i--) {
+            list.remove(i);
+        }
+    }
+
+    void updateParticles() {
+        particles.update();
     }
 
     private void handlePlayerHit() {
@@ -561,20 +1232,23 @@ public class EscapeRoomGame
         lives = Math.max(0, lives - 1);
         if(!isPlayerInWater())
         {
-            resourceManager.playSound("hit", 1.0);
+            audio.playSound("hit", 1.0);
         }
         else
         {
-            resourceManager.playSound("aag",1.0);
+            audio.playSound("aag",1.0);
         }
 
-        player.x = 100;
-        player.y = HEIGHT - 150;
-        player.vx = 0;
-        player.vy = 0;
-        player.currentColor = "";
-        player.shieldTimer = 0;
-        player.hasShield = false;
+        // Back to the spawn point as the level started; the rest of the world carries on
+        player.x = levelStart.playerX;
+        player.y = levelStart.playerY;
+        player.prevX = levelStart.playerPrevX;
+        player.prevY = levelStart.playerPrevY;
+        player.vx = levelStart.playerVx;
+        player.vy = levelStart.playerVy;
+        player.currentColor = POWER_COLORS[levelStart.playerColor];
+        player.shieldTimer = levelStart.playerShieldTimer;
+        player.hasShield = levelStart.playerHasShield;
 
         if (lives <= 0) {
             triggerGameOver();
@@ -584,22 +1258,46 @@ public class EscapeRoomGame
     private void triggerGameOver() {
         gameOver = true;
         gameOverTimer = GAME_OVER_DELAY_FRAMES;
-        addScoreToLeaderboard();
+        if (recordsScores) {
+            addScoreToLeaderboard();
+        }
+        // The run is over, and the slot has held this run since its first tick
+        if (savesProgress) {
+            saveStore().clear();
+        }
+
+        leaderboardLines.clear();
+        int rank = 1;
+        for (LeaderboardEntry entry : leaderboard.snapshot().top(5)) {
+            leaderboardLines.add(rank + ". " + entry.name + " - " + entry.score);
+            rank++;
+        }
+
+        // Below the top 5, also show the player's neighbourhood
+        int index = leaderboard.rankOf(totalScore) - 1;
+        if (index >= 5) {
+            leaderboardLines.add("...");
+            int first = Math.max(5, index - 1);
+            rank = first + 1;
+            for (LeaderboardEntry entry : leaderboard.range(first, index + 2 - first)) {
+                leaderboardLines.add(rank + ". " + entry.name + " - " + entry.score);
+                rank++;
+            }
+        }
     }
 
     private boolean isPlayerInWater() {
-        for (Platform p : platforms) {
-            // Water platforms are rendered with this specific blue color
-            if (p.isWater) {
-                boolean intersects =
-                        player.x + PLAYER_SIZE > p.x &&
-                        player.x < p.x + p.width &&
-                        // treat touching the water surface as being in water
-                        player.y + PLAYER_SIZE >= p.y &&
-                        player.y < p.y + p.height;
-                if (intersects) {
-                    return true;
-                }
+        int hits = waterPlatforms.query(player.x, player.y, player.x + PLAYER_SIZE, player.y + PLAYER_SIZE);
+        for (int i = 0; i < hits; i++) {
+            Platform p = waterPlatforms.platform(i);
+            boolean intersects =
+                    player.x + PLAYER_SIZE > p.x &&
+                    player.x < p.x + p.width &&
+                    // treat touching the water surface as being in water
+                    player.y + PLAYER_SIZE >= p.y &&
+                    player.y < p.y + p.height;
+            if (intersects) {
+                return true;
             }
         }
         return false;
@@ -609,6 +1307,7 @@ public class EscapeRoomGame
         level = 1;
         lives = MAX_LIVES;
         totalScore = 0;
+        levelStars = new byte[0];
         gameOver = false;
         gameWon = false;
         gameOverTimer = 0;
@@ -619,7 +1318,7 @@ public class EscapeRoomGame
         if (gameOver) return;
         if (lives < MAX_LIVES) {
             lives++;
-            resourceManager.playSound("power_use", 0.4);
+            audio.playSound("power_use", 0.4);
         }
     }
 
@@ -630,21 +1329,29 @@ public class EscapeRoomGame
     // ---- Scoring / leaderboard helpers ----
 
     private void calculateStarsForCurrentLevel() {
+        starsEarnedThisLevel = rateLevel();
+        ratingLine = "Rating: " + buildStarsText(starsEarnedThisLevel);
+        if (level > levelStars.length) {
+            levelStars = Arrays.copyOf(levelStars, level);
+        }
+        levelStars[level - 1] = (byte) Math.max(levelStars[level - 1], starsEarnedThisLevel);
+    }
+
+    private int rateLevel() {
         if (enemiesAtLevelStart <= 0) {
             // No enemies: always grant 3 stars
-            starsEarnedThisLevel = 3;
-            return;
+            return 3;
         }
 
         double ratio = (double) enemiesKilledThisLevel / (double) enemiesAtLevelStart;
         if (ratio >= 0.8) {
-            starsEarnedThisLevel = 3;
+            return 3;
         } else if (ratio >= 0.5) {
-            starsEarnedThisLevel = 2;
+            return 2;
         } else if (enemiesKilledThisLevel > 0) {
-            starsEarnedThisLevel = 1;
+            return 1;
         } else {
-            starsEarnedThisLevel = 0;
+            return 0;
         }
     }
 
@@ -652,75 +1359,100 @@ public class EscapeRoomGame
         if (playerName == null || playerName.trim().isEmpty()) {
             playerName = "Player";
         }
-        leaderboard.add(new LeaderboardEntry(playerName, totalScore));
-        // Keep highest scores first
-        leaderboard.sort((a, b) -> Integer.compare(b.score, a.score));
-        saveLeaderboardToDisk();
-    }
-
-    private ArrayList<LeaderboardEntry> getTopLeaderboardEntries(int max) {
-        ArrayList<LeaderboardEntry> top = new ArrayList<>();
-        for (int i = 0; i < leaderboard.size() && i < max; i++) {
-            top.add(leaderboard.get(i));
+        LeaderboardEntry entry = new LeaderboardEntry(playerName, totalScore);
+        leaderboard.add(entry);
+        leaderboardStore().append(entry);
+        ScoreClient remote = scoreClient();
+        if (remote != null) {
+            remote.submit(entry);
         }
-        return top;
     }
 
     /**
      * Public snapshot of the leaderboard to be used by menus / start screens.
      */
-    public static ArrayList<LeaderboardEntry> getLeaderboardSnapshot(int max) {
-        ArrayList<LeaderboardEntry> top = new ArrayList<>();
-        for (int i = 0; i < leaderboard.size() && i < max; i++) {
-            top.add(leaderboard.get(i));
+    public static List<LeaderboardEntry> getLeaderboardSnapshot(int max) {
+        // The shared board once it has been fetched, this cabinet's otherwise
+        ScoreClient remote = scoreClient();
+        List<LeaderboardEntry> shared = remote == null ? null : remote.top();
+        if (shared != null) {
+            return shared.subList(0, Math.min(max, shared.size()));
         }
-        return top;
+        return leaderboard.snapshot().top(max);
+    }
+
+    /** 1-based rank a score would have on the leaderboard right now. */
+    public static int getLeaderboardRank(int score) {
+        return leaderboard.rankOf(score);
     }
 
     public static void loadLeaderboardFromDisk() {
-        leaderboard.clear();
-        File file = new File(LEADERBOARD_FILE);
-        if (!file.exists()) {
+        LeaderboardStore store = leaderboardStore();
+        leaderboard.reset(store.base(), store.loaded());
+        ScoreClient remote = scoreClient();
+        if (remote != null) {
+            remote.refreshTop();
+        }
+    }
+
+    private static synchronized ScoreClient scoreClient() {
+        if (!scoreClientChecked) {
+            scoreClient = ScoreClient.fromProperties(Paths.get(SCORE_OUTBOX_FILE));
+            scoreClientChecked = true;
+        }
+        return scoreClient;
+    }
+
+    /** The saved run to offer on the start screen, or null; reads the file on first use. */
+    public static SaveGame loadSavedGame() {
+        return saveStore().load();
+    }
+
+    /**
+     * Carries on a saved run from the start of its level, with its lives,
+     * score and star ratings. The save is not checked against this game's
+     * level data; a level past the last one plays as any such level would.
+     */
+    public void resume(SaveGame save) {
+        setPlayerName(save.playerName);
+        level = save.level;
+        lives = Math.min(save.lives, MAX_LIVES);
+        totalScore = save.totalScore;
+        levelStars = save.starsCopy();
+        gameOver = false;
+        gameOverTimer = 0;
+        initLevel();
+    }
+
+    // Queues the run's progress for the save writer; the level is where it resumes
+    private void saveProgress(int resumeLevel) {
+        if (!savesProgress) {
             return;
         }
+        saveStore().save(new SaveGame(playerName, resumeLevel, lives, totalScore, levelStars,
+                System.currentTimeMillis()));
+        savedThisRun = true;
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\t");
-                if (parts.length != 2) continue;
-                String name = parts[0].trim();
-                String scoreStr = parts[1].trim();
-                try {
-                    int score = Integer.parseInt(scoreStr);
-                    leaderboard.add(new LeaderboardEntry(name, score));
-                } catch (NumberFormatException ignore) {
-                    // Skip malformed line
-                }
-            }
-            // Ensure leaderboard is sorted descending
-            leaderboard.sort((a, b) -> Integer.compare(b.score, a.score));
-        } catch (IOException e) {
-            // If reading fails, just keep the in-memory leaderboard empty
+    private static synchronized SaveStore saveStore() {
+        if (saveStore == null) {
+            saveStore = SaveStore.open(Paths.get(SAVE_FILE));
         }
+        return saveStore;
     }
 
-    private static void saveLeaderboardToDisk() {
-        File file = new File(LEADERBOARD_FILE);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (LeaderboardEntry entry : leaderboard) {
-                writer.write(entry.name + "\t" + entry.score);
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            // Ignore save errors to avoid crashing the game
+    private static synchronized LeaderboardStore leaderboardStore() {
+        if (leaderboardStore == null) {
+            leaderboardStore = LeaderboardStore.open(Paths.get(LEADERBOARD_FILE));
         }
+        return leaderboardStore;
     }
 
     public void setPlayerName(String name) {
         if (name != null && !name.trim().isEmpty()) {
             this.playerName = name.trim();
         }
+        playerLine = "Player: " + playerName;
     }
 
     public String getPlayerName() {
@@ -731,10 +1463,18 @@ public class EscapeRoomGame
         return totalScore;
     }
 
+    public int getLives() {
+        return lives;
+    }
+
     public int getStarsEarnedThisLevel() {
         return starsEarnedThisLevel;
     }
 
+    private static double lerp(double from, double to, double alpha) {
+        return from + (to - from) * alpha;
+    }
+
     private String buildStarsText(int stars) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < 3; i++) {
@@ -752,17 +1492,22 @@ public class EscapeRoomGame
 
     public class Player {
         public double x, y, vx, vy;
+        double prevX, prevY;
         public boolean onGround;
-        public String currentColor = "";
+        public PowerColor currentColor = PowerColor.NONE;
         public boolean hasShield = false;
         public int shieldTimer = 0;
 
         Player(double x, double y) {
             this.x = x;
             this.y = y;
+            this.prevX = x;
+            this.prevY = y;
         }
 
-        void update(ArrayList<Platform> platforms) {
+        void update(PlatformIndex solids) {
+            prevX = x;
+            prevY = y;
             vy += PLAYER_GRAVITY;
             x += vx;
             y += vy;
@@ -770,11 +1515,23 @@ public class EscapeRoomGame
             vx *= PLAYER_FRICTION;
             onGround = false;
 
-            // Platform collision
-            for (Platform p : platforms) {
-                if (x + PLAYER_SIZE > p.x && x < p.x + p.width &&
-                        y + PLAYER_SIZE > p.y && y < p.y + p.height && vy > 0) {
-                    y = p.y - PLAYER_SIZE;
+            // Platform collision: once landed vy is 0, so only the first overlapping
+            // platform in list order can ever apply
+            if (vy > 0) {
+                Platform landing = null;
+                int landingIndex = Integer.MAX_VALUE;
+                int hits = solids.query(x, y, x + PLAYER_SIZE, y + PLAYER_SIZE);
+                for (int i = 0; i < hits; i++) {
+                    Platform p = solids.platform(i);
+                    if (solids.listIndex(i) < landingIndex &&
+                            x + PLAYER_SIZE > p.x && x < p.x + p.width &&
+                            y + PLAYER_SIZE > p.y && y < p.y + p.height) {
+                        landing = p;
+                        landingIndex = solids.listIndex(i);
+                    }
+                }
+                if (landing != null) {
+                    y = landing.y - PLAYER_SIZE;
                     vy = 0;
                     onGround = true;
                 }
@@ -784,8 +1541,8 @@ public class EscapeRoomGame
             if (x < 0) {
                 x = 0;
                 vx = 0;
-            } else if (x + PLAYER_SIZE > WIDTH) {
-                x = WIDTH - PLAYER_SIZE;
+            } else if (x + PLAYER_SIZE > worldWidth) {
+                x = worldWidth - PLAYER_SIZE;
                 vx = 0;
             }
 
@@ -819,63 +1576,54 @@ public class EscapeRoomGame
         void jump() {
             if (onGround) {
                 vy = PLAYER_JUMP_FORCE;
-                resourceManager.playSound("jump", 0.01);
+                audio.playSound("jump", 0.01);
             }
         }
 
         void shoot() {
-            if (currentColor.equals("red")) {
-                projectiles.add(new Projectile(x + PLAYER_SIZE, y + PLAYER_SIZE / 2, 7, 0, "fire", 2));
-                resourceManager.playSound("shoot", 0.4);
-            } else if (currentColor.equals("blue")) {
-                projectiles.add(new Projectile(x + PLAYER_SIZE, y + PLAYER_SIZE / 2, 6, 0, "ice", 1));
-                resourceManager.playSound("shoot", 0.4);
-            } else if (currentColor.equals("yellow")) {
-                projectiles.add(new Projectile(x + PLAYER_SIZE, y + PLAYER_SIZE / 2, 8, 0, "electric", 3));
-                resourceManager.playSound("shoot", 0.4);
+            Element element = currentColor.projectile;
+            if (element != null) {
+                projectiles.add(obtainProjectile(x + PLAYER_SIZE, y + PLAYER_SIZE / 2,
+                        element.projectileSpeed, 0, element, element.projectileDamage));
+                audio.playSound("shoot", 0.4);
             }
         }
 
         void usePower() {
-            if (currentColor.equals("purple")) {
+            if (currentColor == PowerColor.PURPLE) {
                 // Shield
                 shieldTimer = 300;
                 hasShield = true;
-                currentColor = "";
-                resourceManager.playSound("shield_activate", 0.6);
+                currentColor = PowerColor.NONE;
+                audio.playSound("shield_activate", 0.6);
             } else 
             {
                 shoot();
             }
         }
 
-        void absorbColor(String color) {
+        void absorbColor(PowerColor color) {
             currentColor = color;
-            for (int i = 0; i < 20; i++) {
-                particles.add(new Particle(x + PLAYER_SIZE / 2, y + PLAYER_SIZE / 2, color));
-            }
-            resourceManager.playSound("absorb", 0.9);
+            absorbBurst.emit(x + PLAYER_SIZE / 2, y + PLAYER_SIZE / 2, color);
+            audio.playSound("absorb", 0.9);
         }
 
         void draw(GraphicsContext gc, EscapeRoomGame game, ResourceManager rm) {
-            String imageKey = "player_default";
-            if (!currentColor.isEmpty()) {
-                imageKey = "player_" + currentColor;
-            }
-            
-            if (rm.hasImage(imageKey)) {
-                gc.drawImage(rm.getImage(imageKey), x, y, PLAYER_SIZE, PLAYER_SIZE);
+            double x = lerp(prevX, this.x, renderAlpha);
+            double y = lerp(prevY, this.y, renderAlpha);
+            SpriteAtlas.Region sprite = playerSprites[currentColor.ordinal()];
+            if (sprite != null) {
+                sprite.draw(gc, x, y, PLAYER_SIZE, PLAYER_SIZE);
             } else {
-                Color playerColor = currentColor.isEmpty() ? Color.GRAY : game.getColorFromString(currentColor);
-                rm.drawPlayerFallback(gc, x, y, PLAYER_SIZE, playerColor);
+                rm.drawPlayerFallback(gc, x, y, PLAYER_SIZE, currentColor.color);
             }
 
             // Shield effect
             if (hasShield) {
-                if (rm.hasImage("player_shield")) {
-                    gc.drawImage(rm.getImage("player_shield"), x - 10, y - 10, PLAYER_SIZE + 20, PLAYER_SIZE + 20);
+                if (shieldSprite != null) {
+                    shieldSprite.draw(gc, x - 10, y - 10, PLAYER_SIZE + 20, PLAYER_SIZE + 20);
                 } else {
-                    gc.setStroke(Color.rgb(148, 0, 211, 0.4));
+                    gc.setStroke(SHIELD_OUTLINE);
                     gc.strokeOval(x - 10, y - 10, PLAYER_SIZE + 20, PLAYER_SIZE + 20);
                     gc.strokeOval(x - 8, y - 8, PLAYER_SIZE + 16, PLAYER_SIZE + 16);
                 }
@@ -885,31 +1633,38 @@ public class EscapeRoomGame
 
     public class ColoredBlock {
         int x, y, width, height;
-        String color;
+        PowerColor color;
         boolean absorbed = false;
         int pulseFrame = 0;
+        private SpriteAtlas.Region sprite;
 
-        ColoredBlock(int x, int y, int width, int height, String color) {
+        ColoredBlock(int x, int y, int width, int height, PowerColor color) {
+            reset(x, y, width, height, color);
+        }
+
+        // Sets every field as the constructor does, so pooled blocks can be reused
+        void reset(int x, int y, int width, int height, PowerColor color) {
             this.x = x;
             this.y = y;
             this.width = width;
             this.height = height;
             this.color = color;
+            this.absorbed = false;
+            this.pulseFrame = 0;
+            this.sprite = sprite(color.blockImageKey);
         }
 
         void draw(GraphicsContext gc, EscapeRoomGame game, ResourceManager rm) 
         {
             if (absorbed) return;
 
-            pulseFrame++;
             int pulse = (int) (Math.sin(pulseFrame * 0.05) * 5);
             
-            String imageKey = "block_" + color;
-            if (rm.hasImage(imageKey)) {
-                gc.drawImage(rm.getImage(imageKey), x - pulse / 2, y - pulse / 2, width + pulse, height + pulse);
+            if (sprite != null) {
+                sprite.draw(gc, x - pulse / 2, y - pulse / 2, width + pulse, height + pulse);
             } else {
-                Color blockColor = game.getColorFromString(color);
-                rm.drawBlockFallback(gc, x - pulse / 2, y - pulse / 2, width + pulse, height + pulse, blockColor);
+                rm.drawBlockFallback(gc, x - pulse / 2, y - pulse / 2, width + pulse, height + pulse,
+                        color.color, color.outline);
             }
         }
     }
@@ -917,45 +1672,42 @@ public class EscapeRoomGame
     public class Enemy {
         public double x, y;
         public int health;
-        public String type;
+        public Element type;
         public Color color;
         public double vx = ENEMY_BASE_SPEED;
+        double prevX, prevY;
+        private SpriteAtlas.Region sprite;
+
+        Enemy(double x, double y, Element type) {
+            reset(x, y, type);
+        }
 
-        Enemy(double x, double y, String type) {
+        // Sets every field as the constructor does, so pooled enemies can be reused
+        void reset(double x, double y, Element type) {
             this.x = x;
             this.y = y;
+            this.prevX = x;
+            this.prevY = y;
             this.type = type;
             this.health = 3;
-
-            switch (type) {
-                case "fire": color = Color.RED; break;
-                case "ice": color = Color.CYAN; break;
-                case "electric": color = Color.YELLOW; break;
-                default: color = Color.DARKGRAY;
-            }
+            this.vx = ENEMY_BASE_SPEED;
+            this.color = type.enemyColor;
+            this.sprite = sprite(type.enemyImageKey);
         }
 
-        void update(ArrayList<Platform> platforms, Player player) {
+        void update(Player player) {
+            prevX = x;
+            prevY = y;
             x += vx;
 
-            if (x < 50 || x > WIDTH - 80) {
+            if (x < 50 || x > worldWidth - 80) {
                 vx = -vx;
             }
         }
 
-        /*
-        DAMAGE :
-
-        fire     + ice       = 2x damage
-        ice      + fire      = 2x damage
-        ice      + electric  = 2x damage
-        else                 = normal damage
-        */
-        
-
-        void takeDamage(int damage, String damageType) 
+        void takeDamage(int damage, Element damageType) 
         {
-            if ((type.equals("fire") && damageType.equals("ice")) || (type.equals("ice") && damageType.equals("fire")) || (type.equals("electric") && damageType.equals("ice"))) 
+            if (type.isWeakTo(damageType)) 
             {
                 damage *= 2;
             }
@@ -968,9 +1720,10 @@ public class EscapeRoomGame
         }
 
         void draw(GraphicsContext gc, ResourceManager rm) {
-            String imageKey = "enemy_" + type;
-            if (rm.hasImage(imageKey)) {
-                gc.drawImage(rm.getImage(imageKey), x, y, 30, 30);
+            double x = lerp(prevX, this.x, renderAlpha);
+            double y = lerp(prevY, this.y, renderAlpha);
+            if (sprite != null) {
+                sprite.draw(gc, x, y, 30, 30);
             } else {
                 rm.drawEnemyFallback(gc, x, y, 30, color);
             }
@@ -985,19 +1738,31 @@ public class EscapeRoomGame
 
     public class Projectile {
         double x, y, vx, vy;
-        String type;
+        double prevX, prevY;
+        Element type;
         int damage;
+        private SpriteAtlas.Region sprite;
 
-        Projectile(double x, double y, double vx, double vy, String type, int damage) {
+        Projectile(double x, double y, double vx, double vy, Element type, int damage) {
+            reset(x, y, vx, vy, type, damage);
+        }
+
+        // Sets every field as the constructor does, so pooled projectiles can be reused
+        void reset(double x, double y, double vx, double vy, Element type, int damage) {
             this.x = x;
             this.y = y;
+            this.prevX = x;
+            this.prevY = y;
             this.vx = vx;
             this.vy = vy;
             this.type = type;
             this.damage = damage;
+            this.sprite = sprite(type.projectileImageKey);
         }
 
         void update() {
+            prevX = x;
+            prevY = y;
             x += vx;
             y += vy;
         }
@@ -1007,50 +1772,12 @@ public class EscapeRoomGame
         }
 
         void draw(GraphicsContext gc, ResourceManager rm) {
-            String imageKey = "projectile_" + type;
-            if (rm.hasImage(imageKey)) {
-                gc.drawImage(rm.getImage(imageKey), x - 5, y - 5, 10, 10);
+            double x = lerp(prevX, this.x, renderAlpha);
+            double y = lerp(prevY, this.y, renderAlpha);
+            if (sprite != null) {
+                sprite.draw(gc, x - 5, y - 5, 10, 10);
             } else {
-                Color projColor = Color.WHITE;
-                if (type.equals("fire")) projColor = Color.RED;
-                else if (type.equals("ice")) projColor = Color.CYAN;
-                else if (type.equals("electric")) projColor = Color.YELLOW;
-                rm.drawProjectileFallback(gc, x, y, 10, projColor);
-            }
-        }
-    }
-
-    public class Particle {
-        double x, y, vx, vy;
-        int life = 30;
-        String color;
-
-        Particle(double x, double y, String color) {
-            this.x = x;
-            this.y = y;
-            this.color = color;
-            this.vx = (Math.random() - 0.5) * 2;
-            this.vy = (Math.random() - 0.5) * 2;
-        }
-
-        void update() {
-            x += vx;
-            y += vy;
-            vy += 0.2;
-            life--;
-        }
-
-        void draw(GraphicsContext gc, EscapeRoomGame game, ResourceManager rm) {
-            String imageKey = "particle_" + color;
-            double alpha = Math.max(0, life / 30.0);
-            
-            if (rm.hasImage(imageKey)) {
-                gc.setGlobalAlpha(alpha);
-                gc.drawImage(rm.getImage(imageKey), x, y, 5, 5);
-                gc.setGlobalAlpha(1.0);
-            } else {
-                Color particleColor = game.getColorFromString(color);
-                rm.drawParticleFallback(gc, x, y, 5, particleColor, alpha);
+                rm.drawProjectileFallback(gc, x, y, 10, type.projectileColor, type.projectileHighlight);
             }
         }
     }
@@ -1058,7 +1785,9 @@ public class EscapeRoomGame
     public class Platform {
         int x, y, width, height;
         Color color;
+        Color outline;
         boolean isWater;
+        private final ImageCache.Handle sprite;
 
         Platform(int x, int y, int width, int height, Color color) {
             this.x = x;
@@ -1066,20 +1795,21 @@ public class EscapeRoomGame
             this.width = width;
             this.height = height;
             this.color = color;
-            this.isWater = color.equals(Color.rgb(255, 85, 0));        
+            this.outline = color.brighter();
+            this.isWater = color.equals(WATER_COLOR);
+            this.sprite = imageHandle(isWater ? "platform_water" : "platform", width, height);
+            // Decode now, usually on the prefetch thread, so the first draw finds it cached
+            if (sprite != null) {
+                sprite.get();
+            }
         }
 
         void draw(GraphicsContext gc, ResourceManager rm) {
-            String imageKey = "platform";
-            // Check if it's a water platform (blue color)
-            if (isWater) {
-                imageKey = "platform_water";
-            }
-            
-            if (rm.hasImage(imageKey)) {
-                gc.drawImage(rm.getImage(imageKey), x, y, width, height);
+            Image image = sprite == null ? null : sprite.get();
+            if (image != null) {
+                gc.drawImage(image, x, y, width, height);
             } else {
-                rm.drawPlatformFallback(gc, x, y, width, height, color);
+                rm.drawPlatformFallback(gc, x, y, width, height, color, outline);
             }
         }
     }
@@ -1088,10 +1818,12 @@ public class EscapeRoomGame
     {
         int x, y;
         int frame = 0;
+        private final SpriteAtlas.Region sprite;
 
         Goal(int x, int y) {
             this.x = x;
             this.y = y;
+            this.sprite = sprite("goal");
         }
 
         boolean collidesWith(Player p) {
@@ -1100,11 +1832,10 @@ public class EscapeRoomGame
         }
 
         void draw(GraphicsContext gc, ResourceManager rm) {
-            frame++;
             int pulse = (int) (Math.sin(frame * 0.1) * 5);
 
-            if (rm.hasImage("goal")) {
-                gc.drawImage(rm.getImage("goal"), x, y + pulse, 50, 50);
+            if (sprite != null) {
+                sprite.draw(gc, x, y + pulse, 50, 50);
             } else {
                 rm.drawGoalFallback(gc, x, y, pulse);
             }
@@ -1,7 +1,7 @@
 import java.io.IOException;
 import java.util.List;
 
-import javafx.animation.PauseTransition;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
@@ -12,17 +12,21 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 
 public class EsscapeRoomApp extends Application
 {
     private static EsscapeRoomApp instance;
     private static Stage primaryStage;
+    // Optional floor on how long the splash stays up, e.g. -Descaperoom.splash.minMillis=1500
+    private static final long SPLASH_MIN_NANOS =
+            Long.getLong("escaperoom.splash.minMillis", 0L) * 1_000_000L;
 
     @Override
     public void start(Stage stage) throws IOException
@@ -30,23 +34,19 @@ public class EsscapeRoomApp extends Application
         instance = this;
         primaryStage = stage;
 
+        // Decode assets in the background while the splash is up
+        ResourceManager.startLoading();
+
         // Load persisted leaderboard before showing the start screen
         EscapeRoomGame.loadLeaderboardFromDisk();
 
         stage.setTitle("Escape Room V2.0");
         stage.setResizable(false);
 
-        // First show a splash screen, then transition to the main start screen
+        // First show a splash screen until loading is done, then the main start screen
         Scene splashScene = buildSplashScene(stage);
         stage.setScene(splashScene);
         stage.show();
-
-        PauseTransition delay = new PauseTransition(Duration.seconds(5));
-        delay.setOnFinished(e -> {
-            Scene startScene = buildStartScene(stage);
-            stage.setScene(startScene);
-        });
-        delay.play();
     }
 
     public static void showStartScene() {
@@ -65,27 +65,50 @@ public class EsscapeRoomApp extends Application
         // Canvas for drawing the splash screen image
         Canvas canvas = new Canvas(EscapeRoomGame.WIDTH, EscapeRoomGame.HEIGHT);
         GraphicsContext gc = canvas.getGraphicsContext2D();
+        ResourceManager rc = ResourceManager.startLoading();
+        long shownAt = System.nanoTime();
+
+        // Redraw each frame with the loading progress and move on once everything is in
+        AnimationTimer splash = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drawSplash(gc, rc);
+                if (rc.ready().isDone() && now - shownAt >= SPLASH_MIN_NANOS) {
+                    stop();
+                    // Play background music, streamed
+                    MusicChannel.getInstance().playDefault();
+                    stage.setScene(buildStartScene(stage));
+                }
+            }
+        };
+        splash.start();
+
+        root.getChildren().add(canvas);
+
+        Scene scene = new Scene(root, EscapeRoomGame.WIDTH, EscapeRoomGame.HEIGHT);
+
+        return scene;
+    }
 
+    private void drawSplash(GraphicsContext gc, ResourceManager rc)
+    {
         // Draw splash/start image
-        ResourceManager rc = ResourceManager.getInstance();
-        if (rc.hasImage("start")) {
-            gc.drawImage(rc.getImage("start"), 0, 0, 1200, 700);
+        Image start = rc.peekImage("start");
+        if (start != null) {
+            gc.drawImage(start, 0, 0, 1200, 700);
         } else {
-            // Fallback if image missing
-            gc.setFill(javafx.scene.paint.Color.BLACK);
+            // Fallback if image missing (or not decoded yet)
+            gc.setFill(Color.BLACK);
             gc.fillRect(0,0, 1200, 700);
-            gc.setFill(javafx.scene.paint.Color.WHITE);
+            gc.setFill(Color.WHITE);
             gc.fillText("Loading...", 600, 350);
         }
 
-        root.getChildren().add(canvas);
-
-        Scene scene = new Scene(root, EscapeRoomGame.WIDTH, EscapeRoomGame.HEIGHT);
-
-        // Play background audio
-        rc.playSound("background_music", 0.1);
-
-        return scene;
+        // Progress bar along the bottom
+        gc.setFill(Color.rgb(0, 0, 0, 0.5));
+        gc.fillRect(300, 650, 600, 12);
+        gc.setFill(Color.WHITE);
+        gc.fillRect(300, 650, 600 * rc.progress(), 12);
     }
 
     private Scene buildStartScene(Stage stage) {
@@ -120,13 +143,28 @@ public class EsscapeRoomApp extends Application
             String entered = nameField.getText();
             String playerName = (entered == null || entered.trim().isEmpty()) ? "Player" : entered.trim();
             try {
-                startGame(stage, playerName);
+                startGame(stage, playerName, null);
             } catch (IOException ex) {
                 ex.printStackTrace();
             }
         });
 
         centerBox.getChildren().addAll(nameLabel, nameField, startButton);
+
+        // Offer the saved run, if there is a readable one
+        SaveGame save = EscapeRoomGame.loadSavedGame();
+        if (save != null) {
+            Button continueButton = new Button("Continue " + save.playerName + " – Level " + save.level);
+            continueButton.getStyleClass().add("start-button");
+            continueButton.setOnAction(e -> {
+                try {
+                    startGame(stage, save.playerName, save);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            });
+            centerBox.getChildren().add(continueButton);
+        }
         root.setCenter(centerBox);
 
         // --- BOTTOM SECTION: LEADERBOARD & CONTROLS ---
@@ -196,7 +234,7 @@ public class EsscapeRoomApp extends Application
         return label;
     }
 
-    private void startGame(Stage stage, String playerName) throws IOException {
+    private void startGame(Stage stage, String playerName, SaveGame save) throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(EsscapeRoomApp.class.getResource("/game.fxml"));
         // Note: You might want to add CSS to the game scene too if needed,
         // by modifying the FXML or adding stylesheets to the loaded scene here.
@@ -206,6 +244,9 @@ public class EsscapeRoomApp extends Application
         Object controller = fxmlLoader.getController();
         if (controller instanceof GameController) {
             ((GameController) controller).setPlayerName(playerName);
+            if (save != null) {
+                ((GameController) controller).resume(save);
+            }
         }
 
         stage.setScene(scene);
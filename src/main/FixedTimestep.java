@@ -0,0 +1,72 @@
+/**
+ * Accumulator-based fixed-timestep scheduler.
+ *
+ * Real elapsed time reported by the AnimationTimer is banked and paid out in
+ * whole simulation ticks, so game speed no longer depends on the refresh rate
+ * of the display. Whatever is left over in the accumulator becomes the
+ * interpolation factor used when rendering between the last two ticks.
+ */
+public class FixedTimestep
+{
+    public static final int DEFAULT_MAX_STEPS_PER_FRAME = 5;
+
+    private final long stepNanos;
+    private final int maxStepsPerFrame;
+    private long lastTime = -1;
+    private long accumulator = 0;
+
+    public FixedTimestep(int tickRate)
+    {
+        this(tickRate, DEFAULT_MAX_STEPS_PER_FRAME);
+    }
+
+    public FixedTimestep(int tickRate, int maxStepsPerFrame)
+    {
+        if (tickRate <= 0 || maxStepsPerFrame <= 0) {
+            throw new IllegalArgumentException("tick rate and step cap must be positive");
+        }
+        this.stepNanos = 1_000_000_000L / tickRate;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    /**
+     * Banks the time since the previous pulse and returns how many ticks to
+     * simulate now. At most maxStepsPerFrame ticks are handed out; any backlog
+     * beyond that is dropped so a long stall (GC pause, window drag) cannot
+     * snowball into ever longer catch-up frames.
+     */
+    public int advance(long now)
+    {
+        if (lastTime < 0) {
+            lastTime = now;
+            return 0;
+        }
+
+        long elapsed = Math.max(0, now - lastTime);
+        lastTime = now;
+        accumulator += elapsed;
+
+        int steps = (int) Math.min(accumulator / stepNanos, maxStepsPerFrame);
+        accumulator -= steps * stepNanos;
+        if (accumulator >= stepNanos) {
+            // Spiral-of-death guard: forget the time we could not catch up on
+            accumulator %= stepNanos;
+        }
+        return steps;
+    }
+
+    /**
+     * Fraction of a tick that has elapsed since the last simulated tick,
+     * in [0, 1). Used to blend previous and current positions when drawing.
+     */
+    public double alpha()
+    {
+        return (double) accumulator / (double) stepNanos;
+    }
+
+    public void reset()
+    {
+        lastTime = -1;
+        accumulator = 0;
+    }
+}
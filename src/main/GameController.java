@@ -10,17 +10,23 @@ import javafx.scene.input.KeyEvent;
 
 public class GameController implements Initializable 
 {
+    @FXML
+    private Canvas staticCanvas;
     @FXML
     private Canvas gameCanvas;
-    private long lastPowerTime = 0;
-    private static final long POWER_COOLDOWN = 500_000_000; 
+    @FXML
+    private Canvas hudCanvas;
 
     private EscapeRoomGame game;
     private AnimationTimer gameLoop;
-    private boolean aPressed = false;
-    private boolean dPressed = false;
+    private final FixedTimestep timestep = new FixedTimestep(EscapeRoomGame.TICK_RATE);
+    // Key events only set bits; the game applies them at the next tick
+    private final GameInput input = new GameInput();
+    // Null unless -Descaperoom.replayDir is set
+    private ReplayRecorder recorder;
     private String playerName = "Player";
     private boolean navigatedToStartAfterGameOver = false;
+    private int musicLevel = 0;
 
     // In GameController.java
 
@@ -29,6 +35,9 @@ public class GameController implements Initializable
     {
         game = new EscapeRoomGame();
         game.setPlayerName(playerName);
+        game.setSavesProgress(true);
+        game.setRenderSink(new CanvasRenderSink(staticCanvas, gameCanvas, hudCanvas));
+        recorder = ReplayRecorder.fromProperties(game);
 
         // --- FIX STARTS HERE ---
         // Instead of trusting the Canvas to keep focus, we wait for the Scene to load
@@ -50,22 +59,34 @@ public class GameController implements Initializable
         gameLoop = new AnimationTimer() {
             @Override
             public void handle(long now) {
-                // Handle continuous movement
-                if (!game.gameWon && !game.isGameOver()) {
-                    if (aPressed) game.player.moveLeft();
-                    if (dPressed) game.player.moveRight();
+                // Run as many fixed ticks as real time allows
+                int steps = timestep.advance(now);
+                for (int i = 0; i < steps; i++) {
+                    int mask = input.next();
+                    if (recorder != null) {
+                        recorder.record(mask);
+                    }
+                    game.update(mask);
                 }
 
-                // Update game
-                game.update();
+                // Crossfade to the level's track when the level changes
+                if (game.level != musicLevel) {
+                    musicLevel = game.level;
+                    MusicChannel.getInstance().playLevel(musicLevel);
+                }
 
-                // Render
-                game.render(gameCanvas.getGraphicsContext2D());
+                // Render, blending between the last two ticks; the static and
+                // HUD layers are only redrawn when they change
+                game.render(timestep.alpha());
 
                 // On game over, return to the start / name input screen once
                 if (game.isGameOver() && !navigatedToStartAfterGameOver)
                 {
                     navigatedToStartAfterGameOver = true;
+                    if (recorder != null) {
+                        recorder.saveInBackground();
+                        recorder = null;
+                    }
                     EsscapeRoomApp.showStartScene();
                 }
             }
@@ -79,57 +100,30 @@ public class GameController implements Initializable
         switch (code) {
             case A:
             case LEFT:
-                aPressed = true;
+                input.hold(GameInput.LEFT, true);
                 break;
             case D:
             case RIGHT:
-                dPressed = true;
+                input.hold(GameInput.RIGHT, true);
                 break;
             case W:
             case UP:
-                if (!game.isGameOver()) {
-                    game.player.jump();
-                }
+                input.press(GameInput.JUMP);
                 break;
             case SPACE:
-                if (game.gameWon) {
-                    // Only allow progression when at least two stars were earned
-                    if (game.getStarsEarnedThisLevel() <= 1) {
-                        // Replay same level
-                        game.initLevel();
-                    } else {
-                        game.level++;
-                        game.initLevel();
-                    }
-                } else 
-                {
-                    if (!game.isGameOver()) 
-                    {
-                        long now = System.nanoTime();
-
-                        if (now - lastPowerTime >= POWER_COOLDOWN) 
-                        {
-                            game.player.usePower();
-                            lastPowerTime = now;
-                        }
-                    }
-                }
+                // Power, or continue once the level is complete
+                input.press(GameInput.ACTION);
                 break;
             case E:
                 // Absorb nearby color
-                for (EscapeRoomGame.ColoredBlock cb : game.coloredBlocks) {
-                    if (!cb.absorbed &&
-                            Math.abs(game.player.x - cb.x) < 80 &&
-                            Math.abs(game.player.y - cb.y) < 80) {
-                        game.player.absorbColor(cb.color);
-                        cb.absorbed = true;
-                        break;
-                    }
-                }
+                input.press(GameInput.ABSORB);
+                break;
+            case R:
+                input.press(GameInput.REWIND);
                 break;
             case L:
                 if (e.isShiftDown()) {
-                    game.grantBonusLife();
+                    input.press(GameInput.BONUS_LIFE);
                 }
                 break;
         }
@@ -142,15 +136,23 @@ public class GameController implements Initializable
         {
             case A:
             case LEFT:
-                aPressed = false;
+                input.hold(GameInput.LEFT, false);
                 break;
             case D:
             case RIGHT:
-                dPressed = false;
+                input.hold(GameInput.RIGHT, false);
                 break;
         }
     }
 
+    /** Picks up a saved run instead of starting at level 1. */
+    public void resume(SaveGame save) {
+        playerName = save.playerName;
+        game.resume(save);
+        // The recording has to start from the resumed state
+        recorder = ReplayRecorder.fromProperties(game);
+    }
+
     public void setPlayerName(String name) {
         if (name != null && !name.trim().isEmpty()) {
             this.playerName = name.trim();
@@ -0,0 +1,43 @@
+/**
+ * Player input for one simulation tick, as a bitmask.
+ *
+ * Held keys (LEFT, RIGHT) are set for every tick they are down; presses are
+ * latched when the key event arrives and reported by the next tick only, so a
+ * tap between two ticks is never lost or applied twice. The game applies the
+ * mask at the start of the tick (EscapeRoomGame.update(int)), which makes the
+ * sequence of masks, together with the game's seed, a complete description of
+ * a run.
+ */
+public final class GameInput
+{
+    public static final int LEFT = 1;
+    public static final int RIGHT = 1 << 1;
+    public static final int JUMP = 1 << 2;
+    /** Use the current power, or continue once a level is complete. */
+    public static final int ACTION = 1 << 3;
+    public static final int ABSORB = 1 << 4;
+    public static final int BONUS_LIFE = 1 << 5;
+    /** Go back three seconds. */
+    public static final int REWIND = 1 << 6;
+
+    private int held;
+    private int pressed;
+
+    public void hold(int bit, boolean down)
+    {
+        held = down ? held | bit : held & ~bit;
+    }
+
+    public void press(int bit)
+    {
+        pressed |= bit;
+    }
+
+    /** The mask for the next tick; clears the latched presses. */
+    public int next()
+    {
+        int mask = held | pressed;
+        pressed = 0;
+        return mask;
+    }
+}
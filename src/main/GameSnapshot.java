@@ -0,0 +1,271 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The dynamic state of a game at one tick, held in primitive arrays.
+ *
+ * EscapeRoomGame.saveTo() fills one and loadFrom() puts it back. Entities are
+ * stored as parallel arrays (one per field), the particle system keeps its own
+ * ParticleSystem.State, and stored chunks are shared by reference since
+ * WorldChunks never modifies one in place. The level's geometry (platforms,
+ * their indexes, the goal position) is not copied at all: a snapshot only
+ * restores onto the level it was taken in. The arrays grow to the largest
+ * state seen and are then reused, so saving and restoring allocate nothing.
+ */
+final class GameSnapshot
+{
+    int level;
+    int ticks, powerReadyTick, rewindReadyTick;
+    int lives, totalScore;
+    boolean gameWon, gameOver;
+    int gameOverTimer;
+    int enemiesAtLevelStart, enemiesKilledThisLevel, starsEarnedThisLevel;
+
+    double playerX, playerY, playerVx, playerVy, playerPrevX, playerPrevY;
+    boolean playerOnGround, playerHasShield;
+    int playerColor, playerShieldTimer;
+    double cameraLeft, cameraPrevLeft;
+    int goalFrame;
+
+    int enemyCount;
+    double[] enemyX = new double[0], enemyY = new double[0], enemyVx = new double[0];
+    double[] enemyPrevX = new double[0], enemyPrevY = new double[0];
+    int[] enemyHealth = new int[0];
+    byte[] enemyType = new byte[0];
+
+    int blockCount;
+    int[] blockX = new int[0], blockY = new int[0], blockWidth = new int[0], blockHeight = new int[0];
+    int[] blockPulse = new int[0];
+    byte[] blockColor = new byte[0];
+    boolean[] blockAbsorbed = new boolean[0];
+
+    int projectileCount;
+    double[] projectileX = new double[0], projectileY = new double[0];
+    double[] projectileVx = new double[0], projectileVy = new double[0];
+    double[] projectilePrevX = new double[0], projectilePrevY = new double[0];
+    int[] projectileDamage = new int[0];
+    byte[] projectileType = new byte[0];
+
+    int chunkCount, firstResident, lastResident;
+    byte[][] chunks = new byte[0][];
+
+    final ParticleSystem.State particles = new ParticleSystem.State();
+
+    /** Grows the entity and chunk arrays to hold at least the given counts. */
+    void ensureCapacity(int enemies, int blocks, int projectiles, int chunkSlots)
+    {
+        if (enemies > enemyX.length) {
+            int n = grow(enemyX.length, enemies);
+            enemyX = new double[n];
+            enemyY = new double[n];
+            enemyVx = new double[n];
+            enemyPrevX = new double[n];
+            enemyPrevY = new double[n];
+            enemyHealth = new int[n];
+            enemyType = new byte[n];
+        }
+        if (blocks > blockX.length) {
+            int n = grow(blockX.length, blocks);
+            blockX = new int[n];
+            blockY = new int[n];
+            blockWidth = new int[n];
+            blockHeight = new int[n];
+            blockPulse = new int[n];
+            blockColor = new byte[n];
+            blockAbsorbed = new boolean[n];
+        }
+        if (projectiles > projectileX.length) {
+            int n = grow(projectileX.length, projectiles);
+            projectileX = new double[n];
+            projectileY = new double[n];
+            projectileVx = new double[n];
+            projectileVy = new double[n];
+            projectilePrevX = new double[n];
+            projectilePrevY = new double[n];
+            projectileDamage = new int[n];
+            projectileType = new byte[n];
+        }
+        if (chunkSlots > chunks.length) {
+            chunks = new byte[chunkSlots][];
+        }
+    }
+
+    // Capacities only ever grow, by at least half, so a slowly rising count settles quickly
+    private static int grow(int current, int needed)
+    {
+        return Math.max(needed, current + (current >> 1) + 8);
+    }
+
+    /** Serializes the snapshot, for replay keyframes. */
+    void write(DataOutput out) throws IOException
+    {
+        out.writeInt(level);
+        out.writeInt(ticks);
+        out.writeInt(powerReadyTick);
+        out.writeInt(rewindReadyTick);
+        out.writeInt(lives);
+        out.writeInt(totalScore);
+        out.writeBoolean(gameWon);
+        out.writeBoolean(gameOver);
+        out.writeInt(gameOverTimer);
+        out.writeInt(enemiesAtLevelStart);
+        out.writeInt(enemiesKilledThisLevel);
+        out.writeInt(starsEarnedThisLevel);
+
+        out.writeDouble(playerX);
+        out.writeDouble(playerY);
+        out.writeDouble(playerVx);
+        out.writeDouble(playerVy);
+        out.writeDouble(playerPrevX);
+        out.writeDouble(playerPrevY);
+        out.writeBoolean(playerOnGround);
+        out.writeByte(playerColor);
+        out.writeBoolean(playerHasShield);
+        out.writeInt(playerShieldTimer);
+        out.writeDouble(cameraLeft);
+        out.writeDouble(cameraPrevLeft);
+        out.writeInt(goalFrame);
+
+        out.writeInt(enemyCount);
+        for (int i = 0; i < enemyCount; i++) {
+            out.writeDouble(enemyX[i]);
+            out.writeDouble(enemyY[i]);
+            out.writeDouble(enemyVx[i]);
+            out.writeDouble(enemyPrevX[i]);
+            out.writeDouble(enemyPrevY[i]);
+            out.writeInt(enemyHealth[i]);
+            out.writeByte(enemyType[i]);
+        }
+        out.writeInt(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            out.writeInt(blockX[i]);
+            out.writeInt(blockY[i]);
+            out.writeInt(blockWidth[i]);
+            out.writeInt(blockHeight[i]);
+            out.writeByte(blockColor[i]);
+            out.writeBoolean(blockAbsorbed[i]);
+            out.writeInt(blockPulse[i]);
+        }
+        out.writeInt(projectileCount);
+        for (int i = 0; i < projectileCount; i++) {
+            out.writeDouble(projectileX[i]);
+            out.writeDouble(projectileY[i]);
+            out.writeDouble(projectileVx[i]);
+            out.writeDouble(projectileVy[i]);
+            out.writeDouble(projectilePrevX[i]);
+            out.writeDouble(projectilePrevY[i]);
+            out.writeByte(projectileType[i]);
+            out.writeInt(projectileDamage[i]);
+        }
+
+        out.writeInt(chunkCount);
+        out.writeInt(firstResident);
+        out.writeInt(lastResident);
+        for (int c = 0; c < chunkCount; c++) {
+            byte[] chunk = chunks[c];
+            out.writeInt(chunk == null ? -1 : chunk.length);
+            if (chunk != null) out.write(chunk);
+        }
+        particles.write(out);
+    }
+
+    /** Reads what write() wrote, checking counts and enum ordinals so a bad file cannot load. */
+    void read(DataInput in) throws IOException
+    {
+        level = in.readInt();
+        ticks = in.readInt();
+        powerReadyTick = in.readInt();
+        rewindReadyTick = in.readInt();
+        lives = in.readInt();
+        totalScore = in.readInt();
+        gameWon = in.readBoolean();
+        gameOver = in.readBoolean();
+        gameOverTimer = in.readInt();
+        enemiesAtLevelStart = in.readInt();
+        enemiesKilledThisLevel = in.readInt();
+        starsEarnedThisLevel = in.readInt();
+
+        playerX = in.readDouble();
+        playerY = in.readDouble();
+        playerVx = in.readDouble();
+        playerVy = in.readDouble();
+        playerPrevX = in.readDouble();
+        playerPrevY = in.readDouble();
+        playerOnGround = in.readBoolean();
+        playerColor = ordinal(in, PowerColor.values().length);
+        playerHasShield = in.readBoolean();
+        playerShieldTimer = in.readInt();
+        cameraLeft = in.readDouble();
+        cameraPrevLeft = in.readDouble();
+        goalFrame = in.readInt();
+
+        int enemies = count(in);
+        ensureCapacity(enemies, 0, 0, 0);
+        for (int i = 0; i < enemies; i++) {
+            enemyX[i] = in.readDouble();
+            enemyY[i] = in.readDouble();
+            enemyVx[i] = in.readDouble();
+            enemyPrevX[i] = in.readDouble();
+            enemyPrevY[i] = in.readDouble();
+            enemyHealth[i] = in.readInt();
+            enemyType[i] = (byte) ordinal(in, Element.values().length);
+        }
+        enemyCount = enemies;
+        int blocks = count(in);
+        ensureCapacity(0, blocks, 0, 0);
+        for (int i = 0; i < blocks; i++) {
+            blockX[i] = in.readInt();
+            blockY[i] = in.readInt();
+            blockWidth[i] = in.readInt();
+            blockHeight[i] = in.readInt();
+            blockColor[i] = (byte) ordinal(in, PowerColor.values().length);
+            blockAbsorbed[i] = in.readBoolean();
+            blockPulse[i] = in.readInt();
+        }
+        blockCount = blocks;
+        int projectiles = count(in);
+        ensureCapacity(0, 0, projectiles, 0);
+        for (int i = 0; i < projectiles; i++) {
+            projectileX[i] = in.readDouble();
+            projectileY[i] = in.readDouble();
+            projectileVx[i] = in.readDouble();
+            projectileVy[i] = in.readDouble();
+            projectilePrevX[i] = in.readDouble();
+            projectilePrevY[i] = in.readDouble();
+            projectileType[i] = (byte) ordinal(in, Element.values().length);
+            projectileDamage[i] = in.readInt();
+        }
+        projectileCount = projectiles;
+
+        int slots = count(in);
+        firstResident = in.readInt();
+        lastResident = in.readInt();
+        ensureCapacity(0, 0, 0, slots);
+        for (int c = 0; c < slots; c++) {
+            int length = in.readInt();
+            chunks[c] = length < 0 ? null : new byte[length];
+            if (chunks[c] != null) in.readFully(chunks[c]);
+        }
+        chunkCount = slots;
+        particles.read(in);
+    }
+
+    private static int ordinal(DataInput in, int values) throws IOException
+    {
+        int ordinal = in.readByte();
+        if (ordinal < 0 || ordinal >= values) {
+            throw new IOException("bad enum ordinal " + ordinal);
+        }
+        return ordinal;
+    }
+
+    private static int count(DataInput in) throws IOException
+    {
+        int n = in.readInt();
+        if (n < 0 || n > 1 << 24) {
+            throw new IOException("bad entity count " + n);
+        }
+        return n;
+    }
+}
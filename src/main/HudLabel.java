@@ -0,0 +1,24 @@
+/**
+ * A HUD string of the form prefix + number that is only rebuilt when the
+ * number changes, so drawing the HUD does not concatenate strings every frame.
+ */
+public class HudLabel
+{
+    private final String prefix;
+    private int value;
+    private String text;
+
+    public HudLabel(String prefix)
+    {
+        this.prefix = prefix;
+    }
+
+    public String text(int newValue)
+    {
+        if (text == null || newValue != value) {
+            value = newValue;
+            text = prefix + newValue;
+        }
+        return text;
+    }
+}
@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.scene.image.Image;
+
+/**
+ * Lazily decoded images, kept within a memory budget.
+ *
+ * Images are registered by key and resource path but only decoded the first
+ * time they are asked for, at the size they will be drawn at, so a 1920x1080
+ * source drawn as a 120x50 platform costs 24 KB instead of 8 MB. Decoded images
+ * are kept in least-recently-used order and the oldest are dropped once the
+ * estimated total (4 bytes per pixel) goes over the budget; a dropped image is
+ * simply decoded again next time. The budget comes from the
+ * escaperoom.imageCache.mb system property.
+ *
+ * The budget only bounds memory if callers do not hold on to the images:
+ * long-lived users keep a Handle instead and fetch the image through it on
+ * every draw, which also keeps the least-recently-used order following what
+ * is actually drawn.
+ */
+public class ImageCache
+{
+    public static final long DEFAULT_BUDGET_MB = 64;
+
+    private final long budgetBytes;
+    private final Map<String, Source> sources = new HashMap<>();
+    // Access-ordered, so iteration starts at the least recently used image
+    private final LinkedHashMap<String, Image> decoded = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private static final class Source
+    {
+        final String path;
+        final int width, height;
+
+        Source(String path, int width, int height)
+        {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * One image at one size, fetched through the cache on every get(), so
+     * holding a handle neither keeps the image alive nor hides its use.
+     */
+    public final class Handle
+    {
+        private final String key, sizedKey;
+        private final int width, height;
+
+        private Handle(String key, int width, int height)
+        {
+            this.key = key;
+            this.sizedKey = sizedKey(key, width, height);
+            this.width = width;
+            this.height = height;
+        }
+
+        /** The image, decoding it again if it was evicted; null if it is missing or unreadable. */
+        public Image get()
+        {
+            return ImageCache.this.get(key, sizedKey, width, height);
+        }
+    }
+
+    public ImageCache(long budgetBytes)
+    {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** Budget from -Descaperoom.imageCache.mb, or DEFAULT_BUDGET_MB. */
+    public static long budgetFromProperties()
+    {
+        return Long.getLong("escaperoom.imageCache.mb", DEFAULT_BUDGET_MB) * 1024 * 1024;
+    }
+
+    /**
+     * Registers an image with the size it is normally drawn at; nothing is
+     * decoded yet. Paths that do not exist are ignored.
+     */
+    public synchronized void register(String key, String path, int width, int height)
+    {
+        if (getClass().getResource(path) != null) {
+            sources.put(key, new Source(path, width, height));
+        }
+    }
+
+    public synchronized boolean contains(String key)
+    {
+        return sources.containsKey(key);
+    }
+
+    /** A handle on the image at the given size, or null if the key is not registered. */
+    public synchronized Handle handle(String key, int width, int height)
+    {
+        return sources.containsKey(key) ? new Handle(key, width, height) : null;
+    }
+
+    /** As above, at the image's registered display size. */
+    public synchronized Handle handle(String key)
+    {
+        Source source = sources.get(key);
+        return source == null ? null : new Handle(key, source.width, source.height);
+    }
+
+    /** The image at its registered display size, or null if it is missing or unreadable. */
+    public Image get(String key)
+    {
+        Source source;
+        synchronized (this) {
+            source = sources.get(key);
+        }
+        return source == null ? null : get(key, source.width, source.height);
+    }
+
+    /** The image at its registered size if it is already decoded; never decodes. */
+    public synchronized Image peek(String key)
+    {
+        Source source = sources.get(key);
+        return source == null ? null : decoded.get(sizedKey(key, source.width, source.height));
+    }
+
+    /** The image decoded at exactly width x height, or null if it is missing or unreadable. */
+    public Image get(String key, int width, int height)
+    {
+        return get(key, sizedKey(key, width, height), width, height);
+    }
+
+    private Image get(String key, String sizedKey, int width, int height)
+    {
+        Source source;
+        synchronized (this) {
+            Image cached = decoded.get(sizedKey);
+            if (cached != null) {
+                return cached;
+            }
+            source = sources.get(key);
+        }
+        if (source == null) {
+            return null;
+        }
+
+        // Decode outside the lock; two threads racing on one key just decode it twice
+        Image image = decode(source.path, width, height);
+        if (image == null) {
+            return null;
+        }
+        synchronized (this) {
+            Image previous = decoded.put(sizedKey, image);
+            if (previous == null) {
+                usedBytes += bytes(image);
+            }
+            evictOver(sizedKey);
+        }
+        return image;
+    }
+
+    public synchronized long usedBytes()
+    {
+        return usedBytes;
+    }
+
+    public long budgetBytes()
+    {
+        return budgetBytes;
+    }
+
+    // Drops least recently used images until within budget, never the one just added
+    private void evictOver(String keep)
+    {
+        Iterator<Map.Entry<String, Image>> it = decoded.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Image> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            usedBytes -= bytes(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private Image decode(String path, int width, int height)
+    {
+        try (InputStream is = getClass().getResourceAsStream(path)) {
+            if (is == null) {
+                return null;
+            }
+            Image image = new Image(is, width, height, false, true);
+            return image.isError() ? null : image;
+        } catch (IOException e) {
+            System.out.println("Could not load image: " + path + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String sizedKey(String key, int width, int height)
+    {
+        return key + '@' + width + 'x' + height;
+    }
+
+    private static long bytes(Image image)
+    {
+        return 4L * (long) image.getWidth() * (long) image.getHeight();
+    }
+}
@@ -0,0 +1,443 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crash-safe leaderboard persistence: a binary snapshot plus an append-only log.
+ *
+ * The snapshot is a MappedLeaderboard whose header records the last log
+ * record it contains. New scores are queued and a background writer appends
+ * them to the log (leaderboard.log) as "seq TAB name TAB score" lines, forcing
+ * the log to disk once per batch, so recording a score costs the same however
+ * big the board is; appendAll() hands back a future that completes once its
+ * batch is on disk, so a caller can wait for that without holding up the
+ * writer, and batches queued meanwhile share the next fsync. Once the log holds COMPACT_AFTER records and an eighth of
+ * the snapshot's size, the writer merges it into a new snapshot and empties
+ * it; as the snapshot grows the merges get rarer, so rewriting the board
+ * costs each record a fixed amount however many scores there are.
+ *
+ * Snapshots are generations named after the last record they hold
+ * (leaderboard.<seq>.bin; the first one may still be a plain leaderboard.bin).
+ * A compaction writes the next generation through a temp file and rename,
+ * and the newest complete generation is the current one, so no file that is
+ * memory-mapped is ever replaced; that is refused on Windows. Superseded
+ * generations are deleted once that succeeds, which on Windows is only after
+ * their mappings are gone, and otherwise at the next open.
+ *
+ * Opening maps the current snapshot (constant time, whatever its size) and
+ * replays the log records newer than its header; the log never holds more
+ * than a compaction's worth. A torn last line (crash mid-append) is dropped,
+ * and records already in the snapshot (crash between compaction and
+ * truncate) are skipped, so the board is never truncated or doubled. A text
+ * leaderboard.txt from older versions is imported once when there is no
+ * snapshot yet.
+ */
+public final class LeaderboardStore
+{
+    static final int COMPACT_AFTER = 256;
+    static final int COMPACT_FRACTION = 8;
+    private static final long FLUSH_TIMEOUT_SECONDS = 2;
+
+    private final Path snapshot, log, legacyText;
+    // Snapshot in use, and superseded ones still to delete
+    private Path current;
+    private final ArrayList<Path> retired = new ArrayList<>();
+    // Entries to append, or latches and futures to release once everything before them is on disk
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    // Newest snapshot written since open(), for callers that mirror the board
+    private volatile Generation latest;
+    // Snapshot at open(), and the log records replayed on top of it
+    private MappedLeaderboard base;
+    private ArrayList<EscapeRoomGame.LeaderboardEntry> loaded;
+    // Writer thread state: the current snapshot and every entry logged since
+    private MappedLeaderboard written;
+    private final ArrayList<EscapeRoomGame.LeaderboardEntry> logged = new ArrayList<>();
+    private long seq;
+    private int logRecords;
+    private FileChannel logChannel;
+    // Entries taken from the queue since open(); and whether any of them failed to reach the log
+    // and are only in memory until a compaction succeeds
+    private long taken;
+    private boolean unsynced;
+
+    private LeaderboardStore(Path snapshot)
+    {
+        this.snapshot = snapshot;
+        this.log = snapshot.resolveSibling(baseName(snapshot) + ".log");
+        this.legacyText = snapshot.resolveSibling(baseName(snapshot) + ".txt");
+    }
+
+    /**
+     * Opens the board stored at the given snapshot path and starts its writer.
+     * A missing or unreadable board just starts empty.
+     */
+    public static LeaderboardStore open(Path snapshot)
+    {
+        LeaderboardStore store = new LeaderboardStore(snapshot);
+        store.load();
+        store.loaded = new ArrayList<>(store.logged);
+        store.written = store.base;
+        Thread writer = new Thread(store::writeLoop, "leaderboard-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(store::flush, "leaderboard-flush"));
+        return store;
+    }
+
+    /** The snapshot as it was at open(). */
+    public MappedLeaderboard base()
+    {
+        return base;
+    }
+
+    /** Entries recorded after the snapshot, in the order they were added. */
+    public ArrayList<EscapeRoomGame.LeaderboardEntry> loaded()
+    {
+        return new ArrayList<>(loaded);
+    }
+
+    /** Queues a score for the writer; returns immediately. */
+    public void append(EscapeRoomGame.LeaderboardEntry entry)
+    {
+        queue.add(entry);
+    }
+
+    /**
+     * Queues scores for the writer and returns at once. The future completes when
+     * they (and everything queued before them) are forced to disk, or completes
+     * exceptionally if the write failed; they stay queued in memory either way.
+     * Only one thread should call it at a time, so its entries stay together.
+     */
+    public CompletableFuture<Void> appendAll(Collection<EscapeRoomGame.LeaderboardEntry> entries)
+    {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        queue.addAll(entries);
+        queue.add(durable);
+        return durable;
+    }
+
+    /** The newest snapshot compacted since open(), or null if there has been none. */
+    public Generation latest()
+    {
+        return latest;
+    }
+
+    /** Blocks until every score appended so far is on disk, or a couple of seconds have passed. */
+    public void flush()
+    {
+        CountDownLatch done = new CountDownLatch(1);
+        queue.add(done);
+        try {
+            done.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load()
+    {
+        base = MappedLeaderboard.empty();
+        try {
+            ArrayList<Path> generations = generations();
+            if (generations.isEmpty() && Files.isRegularFile(legacyText)) {
+                importLegacyText();
+                generations.add(snapshot);
+            }
+            // Newest first; a damaged one falls back to the one before
+            for (Path candidate : generations) {
+                try {
+                    base = MappedLeaderboard.open(candidate);
+                    current = candidate;
+                    break;
+                } catch (IOException | IllegalArgumentException e) {
+                    System.out.println("Could not read leaderboard " + candidate.getFileName() + ": " + e.getMessage());
+                }
+            }
+            // Nothing is mapped but the current snapshot yet, so older ones can go now
+            for (Path old : generations) {
+                if (current != null && !old.equals(current)) {
+                    retired.add(old);
+                }
+            }
+            deleteRetired();
+        } catch (IOException e) {
+            System.out.println("Could not read leaderboard: " + e.getMessage());
+        }
+        seq = base.seq();
+
+        try {
+            if (Files.isRegularFile(log)) {
+                byte[] bytes = Files.readAllBytes(log);
+                // Only whole lines count; anything after the last newline is a torn append
+                int end = lastNewline(bytes) + 1;
+                for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n")) {
+                    String[] parts = line.split("\t");
+                    if (parts.length != 3) continue;
+                    long recordSeq = parseLong(parts[0], -1);
+                    if (recordSeq > base.seq()) {
+                        EscapeRoomGame.LeaderboardEntry e = parse(parts[1], parts[2]);
+                        if (e != null) {
+                            logged.add(e);
+                            seq = Math.max(seq, recordSeq);
+                        }
+                    }
+                    logRecords++;
+                }
+                if (end < bytes.length) {
+                    try (FileChannel ch = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                        ch.truncate(end);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not replay leaderboard log: " + e.getMessage());
+        }
+    }
+
+    // Snapshot files of this board, newest (highest seq) first; the plain name counts as the oldest
+    private ArrayList<Path> generations() throws IOException
+    {
+        ArrayList<Path> found = new ArrayList<>();
+        Path dir = snapshot.toAbsolutePath().getParent();
+        if (dir != null && Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, baseName(snapshot) + ".*.bin")) {
+                for (Path file : files) {
+                    if (generationSeq(file) >= 0) {
+                        found.add(snapshot.resolveSibling(file.getFileName().toString()));
+                    }
+                }
+            }
+        }
+        found.sort((a, b) -> Long.compare(generationSeq(b), generationSeq(a)));
+        if (Files.isRegularFile(snapshot)) {
+            found.add(snapshot);
+        }
+        return found;
+    }
+
+    // The seq in a name made by generation(), or -1 for any other file
+    private long generationSeq(Path file)
+    {
+        String name = file.getFileName().toString();
+        int from = baseName(snapshot).length() + 1;
+        int to = name.length() - ".bin".length();
+        return to > from ? parseLong(name.substring(from, to), -1) : -1;
+    }
+
+    private Path generation(long seq)
+    {
+        return snapshot.resolveSibling(baseName(snapshot) + "." + seq + ".bin");
+    }
+
+    // Deletes superseded snapshots; one still mapped (Windows) is kept for the next try
+    private void deleteRetired()
+    {
+        for (Iterator<Path> it = retired.iterator(); it.hasNext(); ) {
+            try {
+                Files.deleteIfExists(it.next());
+                it.remove();
+            } catch (IOException e) {
+                // Still mapped; retried after the next compaction or at the next open
+            }
+        }
+    }
+
+    // One-off conversion of the old "name TAB score" text board
+    private void importLegacyText() throws IOException
+    {
+        ArrayList<EscapeRoomGame.LeaderboardEntry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(legacyText, StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t");
+            if (parts.length == 2) {
+                EscapeRoomGame.LeaderboardEntry e = parse(parts[0], parts[1]);
+                if (e != null) entries.add(e);
+            }
+        }
+        entries.sort((a, b) -> Integer.compare(b.score, a.score));
+        MappedLeaderboard.write(snapshot, MappedLeaderboard.empty(), entries, 0);
+    }
+
+    private static EscapeRoomGame.LeaderboardEntry parse(String name, String score)
+    {
+        try {
+            return new EscapeRoomGame.LeaderboardEntry(name.trim(), Integer.parseInt(score.trim()));
+        } catch (NumberFormatException e) {
+            // Skip malformed line
+            return null;
+        }
+    }
+
+    private void writeLoop()
+    {
+        ArrayList<Object> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            batch.clear();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            text.setLength(0);
+            for (Object item : batch) {
+                if (item instanceof EscapeRoomGame.LeaderboardEntry) {
+                    EscapeRoomGame.LeaderboardEntry e = (EscapeRoomGame.LeaderboardEntry) item;
+                    logged.add(e);
+                    taken++;
+                    text.append(++seq).append('\t').append(clean(e.name)).append('\t').append(e.score).append('\n');
+                }
+            }
+            if (text.length() > 0 && !appendToLog(text)) {
+                unsynced = true;
+            }
+            if (logRecords >= compactThreshold() && compact()) {
+                unsynced = false;
+            }
+
+            for (Object item : batch) {
+                if (item instanceof CountDownLatch) {
+                    ((CountDownLatch) item).countDown();
+                } else if (item instanceof CompletableFuture) {
+                    CompletableFuture<?> durable = (CompletableFuture<?>) item;
+                    if (unsynced) {
+                        durable.completeExceptionally(new IOException("leaderboard log is not writable"));
+                    } else {
+                        durable.complete(null);
+                    }
+                }
+            }
+        }
+    }
+
+    // One write and one fsync for the whole batch; false if it did not reach the disk
+    private boolean appendToLog(CharSequence text)
+    {
+        try {
+            if (logChannel == null) {
+                logChannel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            ByteBuffer buf = StandardCharsets.UTF_8.encode(text.toString());
+            while (buf.hasRemaining()) {
+                logChannel.write(buf);
+            }
+            logChannel.force(false);
+            logRecords += count(text, '\n');
+            return true;
+        } catch (IOException e) {
+            // The entries stay in memory and reach disk with the next compaction
+            System.out.println("Could not append to leaderboard log: " + e.getMessage());
+            logRecords = Math.max(logRecords, compactThreshold());
+            return false;
+        }
+    }
+
+    // Log records that trigger a compaction: the snapshot is rewritten whole, so it scales with it
+    private int compactThreshold()
+    {
+        return Math.max(COMPACT_AFTER, written.size() / COMPACT_FRACTION);
+    }
+
+    // Merges the logged entries into the next snapshot generation, then empties the log;
+    // true once they are all in a snapshot on disk
+    private boolean compact()
+    {
+        ArrayList<EscapeRoomGame.LeaderboardEntry> sorted = new ArrayList<>(logged);
+        sorted.sort((a, b) -> Integer.compare(b.score, a.score));
+        try {
+            Path next = generation(seq);
+            if (!next.equals(current)) {
+                MappedLeaderboard.write(next, written, sorted, seq);
+                written = MappedLeaderboard.open(next);
+                if (current != null) {
+                    retired.add(current);
+                }
+                current = next;
+                latest = new Generation(written, taken);
+            }
+            logged.clear();
+
+            // A crash before this point leaves log records the new snapshot's header already covers
+            if (logChannel != null) {
+                logChannel.truncate(0);
+                logChannel.force(true);
+            } else {
+                Files.deleteIfExists(log);
+            }
+            logRecords = 0;
+            deleteRetired();
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            // The log keeps everything meanwhile, and the next batch tries again
+            System.out.println("Could not compact leaderboard: " + e.getMessage());
+            // Entries are only dropped from logged once their snapshot is written
+            return logged.isEmpty();
+        }
+    }
+
+    // Names are stored tab-separated, one per line
+    private static String clean(String name)
+    {
+        return name.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static String baseName(Path file)
+    {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static int lastNewline(byte[] bytes)
+    {
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int count(CharSequence text, char c)
+    {
+        int n = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == c) n++;
+        }
+        return n;
+    }
+
+    private static long parseLong(String s, long fallback)
+    {
+        try {
+            return Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /** A snapshot written by a compaction, and how many entries appended since open() it holds. */
+    public static final class Generation
+    {
+        public final MappedLeaderboard snapshot;
+        public final long appended;
+
+        private Generation(MappedLeaderboard snapshot, long appended)
+        {
+            this.snapshot = snapshot;
+            this.appended = appended;
+        }
+    }
+}
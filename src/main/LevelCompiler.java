@@ -0,0 +1,326 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns the text level files in /levels into LevelData.
+ *
+ * A level's source is levels/levelN.lvl (see the files for the format). The
+ * first time a level is needed its source is hashed; when the source is a
+ * plain file, a compiled copy levelN.lvlc next to it is memory-mapped and used
+ * if it was built from the same hash, and (re)written otherwise. Sources inside
+ * a jar are compiled in memory. Either way the result is kept for the rest of
+ * the run, so later switches to the level cost nothing but building entities.
+ *
+ * Levels past the last file reuse the highest-numbered one, as the built-in
+ * final level always did.
+ *
+ * Run as a program with .lvl paths to precompile them.
+ */
+public final class LevelCompiler
+{
+    static final String SOURCE_SUFFIX = ".lvl";
+    static final String COMPILED_SUFFIX = ".lvlc";
+
+    private static final Map<Integer, LevelData> loaded = new ConcurrentHashMap<>();
+
+    private LevelCompiler() {
+    }
+
+    /** The layout for a level number, compiling it on first use. */
+    public static LevelData load(int level)
+    {
+        return loaded.computeIfAbsent(level, LevelCompiler::resolve);
+    }
+
+    private static LevelData resolve(int level)
+    {
+        for (int n = level; n >= 1; n--) {
+            URL url = LevelCompiler.class.getResource("/levels/level" + n + SOURCE_SUFFIX);
+            if (url != null) {
+                return loadSource(url);
+            }
+        }
+        throw new IllegalStateException("No level file for level " + level + " under /levels");
+    }
+
+    private static LevelData loadSource(URL url)
+    {
+        byte[] source;
+        try (InputStream in = url.openStream()) {
+            source = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read level " + url, e);
+        }
+
+        Path file = asFile(url);
+        if (file == null) {
+            return compile(url.getPath(), source);
+        }
+        return loadCached(file, source);
+    }
+
+    // Uses the compiled file next to the source when it matches, rebuilding it when not
+    private static LevelData loadCached(Path sourceFile, byte[] source)
+    {
+        byte[] hash = sha256(source);
+        Path compiled = compiledPath(sourceFile);
+
+        if (Files.isRegularFile(compiled)) {
+            try (FileChannel ch = FileChannel.open(compiled, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                if (Arrays.equals(hash, LevelData.peekHash(mapped))) {
+                    return LevelData.read(mapped);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                // Unreadable or stale cache: fall through and rebuild it
+            }
+        }
+
+        LevelData data = compile(sourceFile.toString(), source);
+        try {
+            writeCompiled(compiled, data);
+        } catch (IOException e) {
+            // Read-only install; the in-memory copy is enough for this run
+        }
+        return data;
+    }
+
+    /** Parses level source text; throws IllegalArgumentException naming the bad line. */
+    static LevelData compile(String name, byte[] source)
+    {
+        LevelBuilder b = new LevelBuilder();
+        String[] lines = new String(source, StandardCharsets.UTF_8).split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                b.add(line.split("\\s+"));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        if (!b.hasGoal) {
+            throw new IllegalArgumentException(name + ": no goal");
+        }
+        return b.build(sha256(source));
+    }
+
+    static void writeCompiled(Path compiled, LevelData data) throws IOException
+    {
+        ByteBuffer out = ByteBuffer.allocate(data.encodedSize());
+        data.write(out);
+
+        // Written beside the target and renamed, so a reader never maps a half-written file
+        Path tmp = compiled.resolveSibling(compiled.getFileName() + ".tmp");
+        Files.write(tmp, out.array());
+        try {
+            Files.move(tmp, compiled, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, compiled, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path compiledPath(Path sourceFile)
+    {
+        String name = sourceFile.getFileName().toString();
+        if (name.endsWith(SOURCE_SUFFIX)) {
+            name = name.substring(0, name.length() - SOURCE_SUFFIX.length());
+        }
+        return sourceFile.resolveSibling(name + COMPILED_SUFFIX);
+    }
+
+    private static Path asFile(URL url)
+    {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] sha256(byte[] data)
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** Collects parsed entities in file order. */
+    private static final class LevelBuilder
+    {
+        private final IntList px = new IntList(), py = new IntList(), pw = new IntList(), ph = new IntList();
+        private final IntList pWater = new IntList();
+        private final IntList bx = new IntList(), by = new IntList(), bw = new IntList(), bh = new IntList();
+        private final IntList bColor = new IntList();
+        private final IntList ex = new IntList(), ey = new IntList(), eElement = new IntList();
+        private int goalX, goalY;
+        private boolean hasGoal;
+        private int worldWidth = EscapeRoomGame.WIDTH;
+
+        void add(String[] f)
+        {
+            switch (f[0]) {
+                case "platform":
+                case "water":
+                    expect(f, 5);
+                    px.add(num(f[1]));
+                    py.add(num(f[2]));
+                    pw.add(num(f[3]));
+                    ph.add(num(f[4]));
+                    pWater.add(f[0].equals("water") ? 1 : 0);
+                    break;
+                case "block":
+                    expect(f, 6);
+                    bx.add(num(f[1]));
+                    by.add(num(f[2]));
+                    bw.add(num(f[3]));
+                    bh.add(num(f[4]));
+                    bColor.add(color(f[5]).ordinal());
+                    break;
+                case "enemy":
+                    expect(f, 4);
+                    ex.add(num(f[1]));
+                    ey.add(num(f[2]));
+                    eElement.add(element(f[3]).ordinal());
+                    break;
+                case "world":
+                    expect(f, 2);
+                    worldWidth = num(f[1]);
+                    if (worldWidth < EscapeRoomGame.WIDTH) {
+                        throw new IllegalArgumentException("world must be at least " + EscapeRoomGame.WIDTH + " wide");
+                    }
+                    break;
+                case "goal":
+                    expect(f, 3);
+                    if (hasGoal) {
+                        throw new IllegalArgumentException("second goal");
+                    }
+                    goalX = num(f[1]);
+                    goalY = num(f[2]);
+                    hasGoal = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown entity '" + f[0] + "'");
+            }
+        }
+
+        LevelData build(byte[] hash)
+        {
+            int n = pWater.size;
+            boolean[] water = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                water[i] = pWater.data[i] != 0;
+            }
+            PowerColor[] colors = new PowerColor[bColor.size];
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = PowerColor.values()[bColor.data[i]];
+            }
+            Element[] elements = new Element[eElement.size];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = Element.values()[eElement.data[i]];
+            }
+            return new LevelData(hash, worldWidth,
+                    px.toArray(), py.toArray(), pw.toArray(), ph.toArray(), water,
+                    bx.toArray(), by.toArray(), bw.toArray(), bh.toArray(), colors,
+                    ex.toArray(), ey.toArray(), elements,
+                    goalX, goalY);
+        }
+
+        private static void expect(String[] f, int fields)
+        {
+            if (f.length != fields) {
+                throw new IllegalArgumentException("'" + f[0] + "' takes " + (fields - 1) + " values, got " + (f.length - 1));
+            }
+        }
+
+        private static int num(String s)
+        {
+            try {
+                return Integer.parseInt(s);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a number: " + s);
+            }
+        }
+
+        private static PowerColor color(String key)
+        {
+            for (PowerColor c : PowerColor.values()) {
+                if (c != PowerColor.NONE && c.key.equals(key)) return c;
+            }
+            throw new IllegalArgumentException("unknown colour '" + key + "'");
+        }
+
+        private static Element element(String key)
+        {
+            for (Element e : Element.values()) {
+                if (e.key.equals(key)) return e;
+            }
+            throw new IllegalArgumentException("unknown element '" + key + "'");
+        }
+    }
+
+    private static final class IntList
+    {
+        int[] data = new int[8];
+        int size;
+
+        void add(int v)
+        {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = v;
+        }
+
+        int[] toArray()
+        {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0) {
+            System.out.println("Usage: LevelCompiler <level.lvl>...");
+            return;
+        }
+        for (String arg : args) {
+            Path source = Paths.get(arg);
+            LevelData data = compile(arg, Files.readAllBytes(source));
+            Path compiled = compiledPath(source);
+            writeCompiled(compiled, data);
+            System.out.println(compiled + ": " + data.platformCount() + " platforms, "
+                    + data.blockCount() + " blocks, " + data.enemyCount() + " enemies");
+        }
+    }
+}
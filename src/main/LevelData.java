@@ -0,0 +1,190 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * One level's layout in the compiled binary form.
+ *
+ * All fields are flat primitive arrays, one entry per entity and in file order
+ * within each kind, so decoding is a straight copy out of a (usually
+ * memory-mapped) buffer. Layout, big-endian:
+ *
+ *   int magic "ERLV", short version, 32-byte SHA-256 of the source text
+ *   int worldWidth
+ *   int n, then n x (int x, int y, int width, int height, byte water)   platforms
+ *   int n, then n x (int x, int y, int width, int height, byte colour)  blocks (PowerColor ordinal)
+ *   int n, then n x (int x, int y, byte element)                        enemies (Element ordinal)
+ *   int goalX, int goalY
+ */
+public final class LevelData
+{
+    static final int MAGIC = 0x45524C56; // "ERLV"
+    static final short VERSION = 2;
+    static final int HASH_BYTES = 32;
+
+    final byte[] sourceHash;
+    final int worldWidth;
+    final int[] platformX, platformY, platformWidth, platformHeight;
+    final boolean[] platformWater;
+    final int[] blockX, blockY, blockWidth, blockHeight;
+    final PowerColor[] blockColor;
+    final int[] enemyX, enemyY;
+    final Element[] enemyElement;
+    final int goalX, goalY;
+
+    LevelData(byte[] sourceHash, int worldWidth,
+              int[] platformX, int[] platformY, int[] platformWidth, int[] platformHeight, boolean[] platformWater,
+              int[] blockX, int[] blockY, int[] blockWidth, int[] blockHeight, PowerColor[] blockColor,
+              int[] enemyX, int[] enemyY, Element[] enemyElement,
+              int goalX, int goalY)
+    {
+        this.sourceHash = sourceHash;
+        this.worldWidth = worldWidth;
+        this.platformX = platformX;
+        this.platformY = platformY;
+        this.platformWidth = platformWidth;
+        this.platformHeight = platformHeight;
+        this.platformWater = platformWater;
+        this.blockX = blockX;
+        this.blockY = blockY;
+        this.blockWidth = blockWidth;
+        this.blockHeight = blockHeight;
+        this.blockColor = blockColor;
+        this.enemyX = enemyX;
+        this.enemyY = enemyY;
+        this.enemyElement = enemyElement;
+        this.goalX = goalX;
+        this.goalY = goalY;
+    }
+
+    public int platformCount()
+    {
+        return platformX.length;
+    }
+
+    public int blockCount()
+    {
+        return blockX.length;
+    }
+
+    public int enemyCount()
+    {
+        return enemyX.length;
+    }
+
+    /** Size of the binary form in bytes. */
+    int encodedSize()
+    {
+        return 4 + 2 + HASH_BYTES + 4
+                + 4 + platformCount() * 17
+                + 4 + blockCount() * 17
+                + 4 + enemyCount() * 9
+                + 8;
+    }
+
+    void write(ByteBuffer out)
+    {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.put(sourceHash);
+        out.putInt(worldWidth);
+
+        out.putInt(platformCount());
+        for (int i = 0; i < platformCount(); i++) {
+            out.putInt(platformX[i]).putInt(platformY[i]).putInt(platformWidth[i]).putInt(platformHeight[i]);
+            out.put((byte) (platformWater[i] ? 1 : 0));
+        }
+        out.putInt(blockCount());
+        for (int i = 0; i < blockCount(); i++) {
+            out.putInt(blockX[i]).putInt(blockY[i]).putInt(blockWidth[i]).putInt(blockHeight[i]);
+            out.put((byte) blockColor[i].ordinal());
+        }
+        out.putInt(enemyCount());
+        for (int i = 0; i < enemyCount(); i++) {
+            out.putInt(enemyX[i]).putInt(enemyY[i]);
+            out.put((byte) enemyElement[i].ordinal());
+        }
+        out.putInt(goalX).putInt(goalY);
+    }
+
+    /**
+     * Reads the source hash from a compiled level without decoding the rest, or
+     * returns null if the buffer is not a compiled level of this version.
+     */
+    static byte[] peekHash(ByteBuffer in)
+    {
+        if (in.remaining() < 4 + 2 + HASH_BYTES) {
+            return null;
+        }
+        ByteBuffer b = in.duplicate();
+        if (b.getInt() != MAGIC || b.getShort() != VERSION) {
+            return null;
+        }
+        byte[] hash = new byte[HASH_BYTES];
+        b.get(hash);
+        return hash;
+    }
+
+    /** Decodes a compiled level; throws IllegalArgumentException if it is malformed. */
+    static LevelData read(ByteBuffer buffer)
+    {
+        ByteBuffer in = buffer.duplicate();
+        try {
+            if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+                throw new IllegalArgumentException("not a compiled level");
+            }
+            byte[] hash = new byte[HASH_BYTES];
+            in.get(hash);
+            int worldWidth = in.getInt();
+
+            PowerColor[] colors = PowerColor.values();
+            Element[] elements = Element.values();
+
+            int n = count(in, 17);
+            int[] px = new int[n], py = new int[n], pw = new int[n], ph = new int[n];
+            boolean[] water = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                px[i] = in.getInt();
+                py[i] = in.getInt();
+                pw[i] = in.getInt();
+                ph[i] = in.getInt();
+                water[i] = in.get() != 0;
+            }
+
+            n = count(in, 17);
+            int[] bx = new int[n], by = new int[n], bw = new int[n], bh = new int[n];
+            PowerColor[] bc = new PowerColor[n];
+            for (int i = 0; i < n; i++) {
+                bx[i] = in.getInt();
+                by[i] = in.getInt();
+                bw[i] = in.getInt();
+                bh[i] = in.getInt();
+                bc[i] = colors[in.get()];
+            }
+
+            n = count(in, 9);
+            int[] ex = new int[n], ey = new int[n];
+            Element[] ee = new Element[n];
+            for (int i = 0; i < n; i++) {
+                ex[i] = in.getInt();
+                ey[i] = in.getInt();
+                ee[i] = elements[in.get()];
+            }
+
+            int gx = in.getInt();
+            int gy = in.getInt();
+            return new LevelData(hash, worldWidth, px, py, pw, ph, water, bx, by, bw, bh, bc, ex, ey, ee, gx, gy);
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated or corrupt compiled level", e);
+        }
+    }
+
+    // Reads a record count, rejecting counts the remaining bytes cannot hold
+    private static int count(ByteBuffer in, int recordBytes)
+    {
+        int n = in.getInt();
+        if (n < 0 || (long) n * recordBytes > in.remaining()) {
+            throw new IllegalArgumentException("bad record count " + n);
+        }
+        return n;
+    }
+}
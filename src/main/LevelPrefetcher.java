@@ -0,0 +1,119 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds level state ahead of time so switching levels does not stall the FX thread.
+ *
+ * While a level is played, a background thread builds the next level, so
+ * advancing just takes the finished state and swaps it into the game. Retrying
+ * or respawning restores the game's level-start snapshot and never comes back
+ * here; the rarer rebuilds of the current level (restoreState()) are done on
+ * demand, sharing the installed level's platforms and their indexes, which
+ * never change during play, and only rebuilding enemies, blocks and the goal.
+ *
+ * take() and prefetchNext() must be called from the thread that runs the
+ * game. Without an executor (headless engines) nothing is built ahead and
+ * take() builds on the calling thread, as initLevel() always did.
+ */
+final class LevelPrefetcher
+{
+    private static ExecutorService sharedExecutor;
+
+    private final EscapeRoomGame game;
+    private final ExecutorService executor;
+    private final Map<Integer, CompletableFuture<Prepared>> pending = new HashMap<>();
+    // Last level handed out; its layout is reused when the same level is built again
+    private Prepared installed;
+
+    LevelPrefetcher(EscapeRoomGame game, ExecutorService executor)
+    {
+        this.game = game;
+        this.executor = executor;
+    }
+
+    /** One low-priority daemon thread shared by all games. */
+    static synchronized ExecutorService sharedExecutor()
+    {
+        if (sharedExecutor == null) {
+            sharedExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "level-prefetch");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+        }
+        return sharedExecutor;
+    }
+
+    /** State for a level: the prefetched copy if there is one, otherwise built now. */
+    Prepared take(int level)
+    {
+        CompletableFuture<Prepared> future = pending.remove(level);
+        Prepared p = future != null ? future.join() : game.prepareLevel(level, layoutFor(level));
+        installed = p;
+        return p;
+    }
+
+    /** Starts building the level after this one, dropping anything else. */
+    void prefetchNext(int level)
+    {
+        if (executor == null) {
+            return;
+        }
+        for (Iterator<Map.Entry<Integer, CompletableFuture<Prepared>>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, CompletableFuture<Prepared>> e = it.next();
+            if (e.getKey() != level + 1) {
+                e.getValue().cancel(false);
+                it.remove();
+            }
+        }
+        prefetch(level + 1);
+    }
+
+    private void prefetch(int level)
+    {
+        if (!pending.containsKey(level)) {
+            Prepared layout = layoutFor(level);
+            pending.put(level, CompletableFuture.supplyAsync(() -> game.prepareLevel(level, layout), executor));
+        }
+    }
+
+    private Prepared layoutFor(int level)
+    {
+        return installed != null && installed.level == level ? installed : null;
+    }
+
+    /** Everything initLevel() installs for one play of a level. */
+    static final class Prepared
+    {
+        final int level;
+        final LevelData data;
+        // Shared by every copy of the level; the game only ever reads them
+        final ArrayList<EscapeRoomGame.Platform> platforms;
+        final PlatformIndex solidPlatforms, waterPlatforms;
+        // Owned by the play that installs this copy
+        final ArrayList<EscapeRoomGame.ColoredBlock> coloredBlocks;
+        final ArrayList<EscapeRoomGame.Enemy> enemies;
+        final EscapeRoomGame.Goal goal;
+
+        Prepared(int level, LevelData data, ArrayList<EscapeRoomGame.Platform> platforms,
+                 PlatformIndex solidPlatforms, PlatformIndex waterPlatforms,
+                 ArrayList<EscapeRoomGame.ColoredBlock> coloredBlocks, ArrayList<EscapeRoomGame.Enemy> enemies,
+                 EscapeRoomGame.Goal goal)
+        {
+            this.level = level;
+            this.data = data;
+            this.platforms = platforms;
+            this.solidPlatforms = solidPlatforms;
+            this.waterPlatforms = waterPlatforms;
+            this.coloredBlocks = coloredBlocks;
+            this.enemies = enemies;
+            this.goal = goal;
+        }
+    }
+}
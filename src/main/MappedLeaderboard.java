@@ -0,0 +1,342 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Read-only leaderboard backed by a memory-mapped binary file.
+ *
+ * Opening maps the file and checks the 24-byte header against the file size,
+ * so it costs the same for ten entries or ten million; the OS pages records
+ * in as they are touched.
+ * Scores and ranks are read straight from the mapping, and names are decoded
+ * only for entries that are actually shown. Layout, big-endian:
+ *
+ *   int magic "ERLB", short version, short 0, long seq (last log record included)
+ *   int count, int nameCount
+ *   count x (int score, int nameId)       sorted by score, highest first
+ *   (nameCount + 1) x int                 byte offsets of each name in the blob
+ *   slots x (int hash, int nameId + 1)    name hash index, linear probing, 0 = free
+ *   UTF-8 name blob                       every distinct name once
+ *
+ * slots is the smallest power of two holding twice the names (none for an
+ * empty table). The index is only for write(), which looks new names up in it
+ * instead of decoding the whole table; version 1 files have no index and are
+ * still read. Files are only ever written whole, never modified in place.
+ * Records and name offsets are not checked when opening but when a name is
+ * decoded: a name id outside the table, or offsets outside the name blob (a
+ * damaged file), read as UNKNOWN_NAME rather than failing.
+ */
+public final class MappedLeaderboard
+{
+    static final int MAGIC = 0x45524C42; // "ERLB"
+    static final short VERSION = 2;
+    static final int HEADER_BYTES = 24;
+    static final int RECORD_BYTES = 8;
+    static final int SLOT_BYTES = 8;
+    static final String UNKNOWN_NAME = "?";
+
+    private final ByteBuffer data;
+    private final short version;
+    private final long seq;
+    private final int count;
+    private final int nameCount;
+    private final int offsetsStart;
+    private final int slotsStart;
+    private final int slots;
+    private final int namesStart;
+    private final int namesLength;
+    // Version 1 files have no hash index; write() builds this once instead
+    private HashMap<String, Integer> legacyIds;
+
+    private MappedLeaderboard(ByteBuffer data)
+    {
+        short version = data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC ? 0 : data.getShort(4);
+        if (version != 1 && version != VERSION) {
+            throw new IllegalArgumentException("not a leaderboard file");
+        }
+        this.data = data;
+        this.version = version;
+        this.seq = data.getLong(8);
+        this.count = data.getInt(16);
+        this.nameCount = data.getInt(20);
+        if (count < 0 || nameCount < 0) {
+            throw new IllegalArgumentException("truncated or corrupt leaderboard file");
+        }
+        long offsets = HEADER_BYTES + (long) count * RECORD_BYTES;
+        long table = offsets + (nameCount + 1L) * 4;
+        long slots = version == 1 ? 0 : indexSlots(nameCount);
+        long names = table + slots * SLOT_BYTES;
+        if (names > data.capacity()) {
+            throw new IllegalArgumentException("truncated or corrupt leaderboard file");
+        }
+        // Only the ends of the offset table; each name's own offsets are checked in nameById
+        long blob = data.capacity() - names;
+        if (data.getInt((int) offsets) != 0 || data.getInt((int) table - 4) != blob) {
+            throw new IllegalArgumentException("truncated or corrupt leaderboard file");
+        }
+        this.offsetsStart = (int) offsets;
+        this.slotsStart = (int) table;
+        this.slots = (int) slots;
+        this.namesStart = (int) names;
+        this.namesLength = (int) blob;
+    }
+
+    /** A board with no entries. */
+    public static MappedLeaderboard empty()
+    {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_BYTES + 4);
+        b.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(0).putInt(0).putInt(0).putInt(0);
+        return new MappedLeaderboard(b);
+    }
+
+    /** Maps a leaderboard file; throws IllegalArgumentException if it is malformed. */
+    public static MappedLeaderboard open(Path file) throws IOException
+    {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new MappedLeaderboard(mapped);
+        }
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    /** Sequence number of the last log record folded into this file. */
+    public long seq()
+    {
+        return seq;
+    }
+
+    public int score(int index)
+    {
+        return data.getInt(recordAt(index));
+    }
+
+    public String name(int index)
+    {
+        return nameById(data.getInt(recordAt(index) + 4));
+    }
+
+    /** Materialises one entry. */
+    public EscapeRoomGame.LeaderboardEntry entry(int index)
+    {
+        return new EscapeRoomGame.LeaderboardEntry(name(index), score(index));
+    }
+
+    /** The best max entries, highest first. */
+    public List<EscapeRoomGame.LeaderboardEntry> top(int max)
+    {
+        int n = Math.max(0, Math.min(max, count));
+        ArrayList<EscapeRoomGame.LeaderboardEntry> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(entry(i));
+        }
+        return out;
+    }
+
+    /** Number of entries with a score strictly above the given one; a binary search. */
+    public int countAbove(int score)
+    {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (score(mid) > score) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int recordAt(int index)
+    {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + count);
+        }
+        return HEADER_BYTES + index * RECORD_BYTES;
+    }
+
+    private String nameById(int id)
+    {
+        if (id < 0 || id >= nameCount) {
+            return UNKNOWN_NAME;
+        }
+        int start = data.getInt(offsetsStart + id * 4);
+        int end = data.getInt(offsetsStart + (id + 1) * 4);
+        if (start < 0 || end < start || end > namesLength) {
+            return UNKNOWN_NAME;
+        }
+        byte[] utf8 = new byte[end - start];
+        ByteBuffer b = data.duplicate();
+        b.position(namesStart + start);
+        b.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // Id of a name already in this file, or -1; only names with the same hash are decoded
+    private int idOf(String name)
+    {
+        if (version == 1) {
+            if (legacyIds == null) {
+                legacyIds = new HashMap<>();
+                for (int id = 0; id < nameCount; id++) {
+                    legacyIds.putIfAbsent(nameById(id), id);
+                }
+            }
+            Integer id = legacyIds.get(name);
+            return id == null ? -1 : id;
+        }
+        int hash = name.hashCode();
+        for (int i = 0, slot = spread(hash); i < slots; i++, slot++) {
+            int at = slotsStart + (slot & (slots - 1)) * SLOT_BYTES;
+            int id = data.getInt(at + 4) - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (data.getInt(at) == hash && id < nameCount && nameById(id).equals(name)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    // Size of the hash index for the given number of names: under half full
+    private static long indexSlots(long names)
+    {
+        return names == 0 ? 0 : Long.highestOneBit(names * 2 - 1) << 1;
+    }
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Adds a name to the index being written at tableStart, which starts zeroed
+    private static void index(ByteBuffer out, int tableStart, int slots, int hash, int id)
+    {
+        for (int i = 0, slot = spread(hash); i < slots; i++, slot++) {
+            int at = tableStart + (slot & (slots - 1)) * SLOT_BYTES;
+            if (out.getInt(at + 4) == 0) {
+                out.putInt(at, hash).putInt(at + 4, id + 1);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("corrupt name index in leaderboard file");
+    }
+
+    /**
+     * Writes base merged with extra (already sorted highest first) to target,
+     * through a temp file and an atomic rename. Equal scores keep base entries
+     * first, as they were recorded earlier.
+     */
+    static void write(Path target, MappedLeaderboard base, List<EscapeRoomGame.LeaderboardEntry> extra, long seq)
+            throws IOException
+    {
+        // Intern: base names keep their ids (found through base's index), new names are appended
+        HashMap<String, Integer> ids = new HashMap<>();
+        ArrayList<String> newNames = new ArrayList<>();
+        ArrayList<byte[]> newBytes = new ArrayList<>();
+        int[] extraIds = new int[extra.size()];
+        int nameCount = base.nameCount;
+        for (int i = 0; i < extra.size(); i++) {
+            String name = extra.get(i).name;
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = base.idOf(name);
+                if (id < 0) {
+                    id = nameCount++;
+                    newNames.add(name);
+                    newBytes.add(name.getBytes(StandardCharsets.UTF_8));
+                }
+                ids.put(name, id);
+            }
+            extraIds[i] = id;
+        }
+
+        int count = base.count + extra.size();
+        int baseBlob = base.namesLength;
+        long blob = baseBlob;
+        for (byte[] n : newBytes) {
+            blob += n.length;
+        }
+        int slots = (int) indexSlots(nameCount);
+        long total = HEADER_BYTES + (long) count * RECORD_BYTES + (nameCount + 1L) * 4 + (long) slots * SLOT_BYTES
+                + blob;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("leaderboard would exceed 2 GB");
+        }
+
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = ch.map(FileChannel.MapMode.READ_WRITE, 0, total);
+            out.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(seq).putInt(count).putInt(nameCount);
+
+            // Merge the two sorted runs
+            int b = 0, e = 0;
+            while (b < base.count || e < extra.size()) {
+                if (e == extra.size() || (b < base.count && base.score(b) >= extra.get(e).score)) {
+                    int at = base.recordAt(b++);
+                    out.putInt(base.data.getInt(at)).putInt(base.data.getInt(at + 4));
+                } else {
+                    out.putInt(extra.get(e).score).putInt(extraIds[e++]);
+                }
+            }
+
+            for (int id = 0; id <= base.nameCount; id++) {
+                out.putInt(base.data.getInt(base.offsetsStart + id * 4));
+            }
+            int offset = baseBlob;
+            for (byte[] n : newBytes) {
+                offset += n.length;
+                out.putInt(offset);
+            }
+
+            // The index is rebuilt from the stored hashes; only version 1 names are decoded for it
+            int tableStart = out.position();
+            if (base.version == 1) {
+                for (int id = 0; id < base.nameCount; id++) {
+                    index(out, tableStart, slots, base.nameById(id).hashCode(), id);
+                }
+            } else {
+                for (int slot = 0; slot < base.slots; slot++) {
+                    int at = base.slotsStart + slot * SLOT_BYTES;
+                    int id = base.data.getInt(at + 4) - 1;
+                    if (id >= 0 && id < base.nameCount) {
+                        index(out, tableStart, slots, base.data.getInt(at), id);
+                    }
+                }
+            }
+            for (int i = 0; i < newNames.size(); i++) {
+                index(out, tableStart, slots, newNames.get(i).hashCode(), base.nameCount + i);
+            }
+            out.position(tableStart + slots * SLOT_BYTES);
+
+            ByteBuffer names = base.data.duplicate();
+            names.position(base.namesStart).limit(base.namesStart + baseBlob);
+            out.put(names);
+            for (byte[] n : newBytes) {
+                out.put(n);
+            }
+            out.force();
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
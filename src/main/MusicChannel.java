@@ -0,0 +1,132 @@
+import java.net.URL;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+/**
+ * Looping background music, streamed rather than decoded up front.
+ *
+ * Each track is played by a MediaPlayer, which reads the file in chunks as it
+ * plays, so only a small buffer is resident instead of the whole decoded track
+ * an AudioClip would hold. Switching tracks crossfades the old player out and
+ * the new one in, then disposes the old one. Levels look for
+ * /sounds/music/levelN.wav (or .mp3) and fall back to the shared
+ * /sounds/background_music.wav; missing tracks just mean silence.
+ *
+ * Must be used from the JavaFX application thread.
+ */
+public class MusicChannel
+{
+    private static final Duration CROSSFADE = Duration.millis(1500);
+    private static final String DEFAULT_TRACK = "/sounds/background_music.wav";
+
+    private static MusicChannel instance;
+
+    private final double volume;
+    private MediaPlayer current;
+    private MediaPlayer fadingOut;
+    private String currentPath;
+    private Timeline fade;
+
+    private MusicChannel(double volume)
+    {
+        this.volume = volume;
+    }
+
+    public static MusicChannel getInstance()
+    {
+        if (instance == null) {
+            instance = new MusicChannel(0.1);
+        }
+        return instance;
+    }
+
+    /** Plays the track for a level, crossfading from whatever is playing. */
+    public void playLevel(int level)
+    {
+        String path = firstExisting("/sounds/music/level" + level + ".wav",
+                "/sounds/music/level" + level + ".mp3", DEFAULT_TRACK);
+        play(path);
+    }
+
+    /** Plays the shared background track. */
+    public void playDefault()
+    {
+        play(firstExisting(DEFAULT_TRACK));
+    }
+
+    private void play(String path)
+    {
+        if (path == null || path.equals(currentPath)) {
+            return;
+        }
+
+        MediaPlayer next;
+        try {
+            URL url = getClass().getResource(path);
+            next = new MediaPlayer(new Media(url.toExternalForm()));
+        } catch (RuntimeException e) {
+            System.out.println("Could not stream music: " + path + " - " + e.getMessage());
+            return;
+        }
+        next.setCycleCount(MediaPlayer.INDEFINITE);
+        next.setVolume(0);
+        next.play();
+        crossfadeTo(next);
+        currentPath = path;
+    }
+
+    public void stop()
+    {
+        crossfadeTo(null);
+        currentPath = null;
+    }
+
+    private void crossfadeTo(MediaPlayer next)
+    {
+        if (fade != null) {
+            // Cut an unfinished fade short so at most two players overlap
+            fade.stop();
+            disposeFadingOut();
+        }
+        fadingOut = current;
+        current = next;
+
+        // Key values only at the end: each volume fades from wherever it is now
+        fade = new Timeline();
+        if (current != null) {
+            fade.getKeyFrames().add(new KeyFrame(CROSSFADE, new KeyValue(current.volumeProperty(), volume)));
+        }
+        if (fadingOut != null) {
+            fade.getKeyFrames().add(new KeyFrame(CROSSFADE, new KeyValue(fadingOut.volumeProperty(), 0)));
+        }
+        fade.setOnFinished(e -> {
+            disposeFadingOut();
+            fade = null;
+        });
+        fade.play();
+    }
+
+    private void disposeFadingOut()
+    {
+        if (fadingOut != null) {
+            fadingOut.stop();
+            fadingOut.dispose();
+            fadingOut = null;
+        }
+    }
+
+    private String firstExisting(String... paths)
+    {
+        for (String path : paths) {
+            if (getClass().getResource(path) != null) {
+                return path;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Fixed-capacity particle engine.
+ *
+ * Particles are stored as parallel primitive arrays (structure of arrays) rather
+ * than one object each, dead particles are removed by swapping the last live one
+ * into their slot, and randomness comes from a private xorshift generator. After
+ * construction nothing is allocated, no matter how many bursts are emitted; when
+ * the budget is full new particles are simply dropped.
+ */
+public class ParticleSystem
+{
+    public static final int DEFAULT_CAPACITY = 32_768;
+    // Ticks a particle lives for, and therefore the number of fade steps
+    static final int LIFETIME = 30;
+    static final int SIZE = 5;
+    private static final float GRAVITY = 0.2f;
+
+    // Particle colours are stored as PowerColor ordinals
+    private static final PowerColor[] PALETTE = PowerColor.values();
+
+    private final float[] x, y, prevX, prevY, vx, vy, life;
+    private final byte[] color;
+    private final int capacity;
+    private int count;
+    private long seed;
+
+    // Per palette slot: sprite (may be null) and pre-faded fallback colours, one per life step
+    private final SpriteAtlas.Region[] sprites = new SpriteAtlas.Region[PALETTE.length];
+    private final Color[][] fadeColors = new Color[PALETTE.length][LIFETIME + 1];
+
+    public ParticleSystem(int capacity, long seed)
+    {
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        prevX = new float[capacity];
+        prevY = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        life = new float[capacity];
+        color = new byte[capacity];
+        setSeed(seed);
+
+        for (int c = 0; c < PALETTE.length; c++) {
+            Color base = PALETTE[c].color;
+            for (int l = 0; l <= LIFETIME; l++) {
+                fadeColors[c][l] = Color.color(base.getRed(), base.getGreen(), base.getBlue(), l / (double) LIFETIME);
+            }
+        }
+    }
+
+    /**
+     * A reusable spawn recipe: how many particles one emit() produces and how
+     * fast they spread.
+     */
+    public final class Emitter
+    {
+        private final int burst;
+        private final float speed;
+
+        private Emitter(int burst, float speed)
+        {
+            this.burst = burst;
+            this.speed = speed;
+        }
+
+        public void emit(double atX, double atY, PowerColor particleColor)
+        {
+            int c = particleColor.ordinal();
+            for (int i = 0; i < burst; i++) {
+                spawn((float) atX, (float) atY, nextSigned() * speed, nextSigned() * speed, LIFETIME, c);
+            }
+        }
+    }
+
+    public Emitter emitter(int burst, double speed)
+    {
+        return new Emitter(burst, (float) speed);
+    }
+
+    /**
+     * Looks up the sprite for each palette colour once; skipped for headless games.
+     */
+    public void bindSprites(ResourceManager rm)
+    {
+        for (int c = 0; c < PALETTE.length; c++) {
+            sprites[c] = rm.getSprite(PALETTE[c].particleImageKey);
+        }
+    }
+
+    /**
+     * Adds one particle. Returns false (and drops it) when the budget is used up.
+     */
+    boolean spawn(float px, float py, float pvx, float pvy, float plife, int colorIndex)
+    {
+        if (count == capacity) {
+            return false;
+        }
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        prevX[i] = px;
+        prevY[i] = py;
+        vx[i] = pvx;
+        vy[i] = pvy;
+        life[i] = plife;
+        color[i] = (byte) colorIndex;
+        return true;
+    }
+
+    public void update()
+    {
+        int i = 0;
+        while (i < count) {
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+            x[i] += vx[i];
+            y[i] += vy[i];
+            vy[i] += GRAVITY;
+            life[i] -= 1;
+            if (life[i] <= 0) {
+                // Swap the last live particle in; it has not been updated yet this tick
+                removeAt(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /** Draws the particles whose x lies in [minX, maxX]. */
+    public void draw(GraphicsContext gc, ResourceManager rm, double alpha, double minX, double maxX)
+    {
+        for (int i = 0; i < count; i++) {
+            double px = prevX[i] + (x[i] - prevX[i]) * alpha;
+            if (px + SIZE < minX || px > maxX) {
+                continue;
+            }
+            double py = prevY[i] + (y[i] - prevY[i]) * alpha;
+            int fade = (int) Math.min(LIFETIME, Math.max(0, life[i]));
+            SpriteAtlas.Region sprite = sprites[color[i]];
+
+            if (sprite != null) {
+                gc.setGlobalAlpha(fade / (double) LIFETIME);
+                sprite.draw(gc, px, py, SIZE, SIZE);
+                gc.setGlobalAlpha(1.0);
+            } else {
+                rm.drawParticleFallback(gc, px, py, SIZE, fadeColors[color[i]][fade]);
+            }
+        }
+    }
+
+    public void clear()
+    {
+        count = 0;
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    public void setSeed(long seed)
+    {
+        // xorshift must never be seeded with zero
+        this.seed = seed != 0 ? seed : 0x9E3779B97F4A7C15L;
+    }
+
+    /** Copies the generator state and the live particles into a State; no allocation once it is big enough. */
+    public void save(State to)
+    {
+        to.ensureCapacity(count);
+        System.arraycopy(x, 0, to.x, 0, count);
+        System.arraycopy(y, 0, to.y, 0, count);
+        System.arraycopy(prevX, 0, to.prevX, 0, count);
+        System.arraycopy(prevY, 0, to.prevY, 0, count);
+        System.arraycopy(vx, 0, to.vx, 0, count);
+        System.arraycopy(vy, 0, to.vy, 0, count);
+        System.arraycopy(life, 0, to.life, 0, count);
+        System.arraycopy(color, 0, to.color, 0, count);
+        to.count = count;
+        to.seed = seed;
+    }
+
+    /** Puts back what save() copied; particles beyond the budget are dropped. */
+    public void restore(State from)
+    {
+        int n = Math.min(from.count, capacity);
+        System.arraycopy(from.x, 0, x, 0, n);
+        System.arraycopy(from.y, 0, y, 0, n);
+        System.arraycopy(from.prevX, 0, prevX, 0, n);
+        System.arraycopy(from.prevY, 0, prevY, 0, n);
+        System.arraycopy(from.vx, 0, vx, 0, n);
+        System.arraycopy(from.vy, 0, vy, 0, n);
+        System.arraycopy(from.life, 0, life, 0, n);
+        System.arraycopy(from.color, 0, color, 0, n);
+        count = n;
+        seed = from.seed;
+    }
+
+    /** Saved particles, sized to the live count rather than the budget. */
+    public static final class State
+    {
+        private float[] x = new float[0], y = new float[0], prevX = new float[0], prevY = new float[0];
+        private float[] vx = new float[0], vy = new float[0], life = new float[0];
+        private byte[] color = new byte[0];
+        private int count;
+        private long seed;
+
+        private void ensureCapacity(int n)
+        {
+            if (n > x.length) {
+                int size = Math.max(n, x.length + (x.length >> 1) + 16);
+                x = new float[size];
+                y = new float[size];
+                prevX = new float[size];
+                prevY = new float[size];
+                vx = new float[size];
+                vy = new float[size];
+                life = new float[size];
+                color = new byte[size];
+            }
+        }
+
+        public void write(DataOutput out) throws IOException
+        {
+            out.writeLong(seed);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeFloat(x[i]);
+                out.writeFloat(y[i]);
+                out.writeFloat(prevX[i]);
+                out.writeFloat(prevY[i]);
+                out.writeFloat(vx[i]);
+                out.writeFloat(vy[i]);
+                out.writeFloat(life[i]);
+                out.writeByte(color[i]);
+            }
+        }
+
+        public void read(DataInput in) throws IOException
+        {
+            long s = in.readLong();
+            int n = in.readInt();
+            if (n < 0 || n > 1 << 24) {
+                throw new IOException("bad particle count " + n);
+            }
+            ensureCapacity(n);
+            for (int i = 0; i < n; i++) {
+                x[i] = in.readFloat();
+                y[i] = in.readFloat();
+                prevX[i] = in.readFloat();
+                prevY[i] = in.readFloat();
+                vx[i] = in.readFloat();
+                vy[i] = in.readFloat();
+                life[i] = in.readFloat();
+                color[i] = in.readByte();
+                if (color[i] < 0 || color[i] >= PALETTE.length) {
+                    throw new IOException("bad particle colour " + color[i]);
+                }
+            }
+            count = n;
+            seed = s;
+        }
+    }
+
+    private void removeAt(int i)
+    {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        prevX[i] = prevX[last];
+        prevY[i] = prevY[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        life[i] = life[last];
+        color[i] = color[last];
+    }
+
+    // Uniform float in [-1, 1), from an xorshift64* generator owned by this engine
+    private float nextSigned()
+    {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        long bits = (seed * 0x2545F4914F6CDD1DL) >>> 40;
+        return (bits / (float) (1 << 24)) * 2f - 1f;
+    }
+}
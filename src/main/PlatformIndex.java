@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Immutable bounding-box tree over a level's platforms, built once per level.
+ *
+ * Platforms never move, so initLevel() compiles them into a flat AABB tree
+ * (median split on the longer axis, up to LEAF_SIZE platforms per leaf) and
+ * every collision or water test afterwards is one O(log n) walk instead of a
+ * scan of the whole level. Queries report platforms by their index in the
+ * level's platform list, so callers can keep "first platform in list order"
+ * semantics. The tree never changes after build(); only the small query buffer
+ * is reused, so an index must be queried from one thread at a time.
+ */
+public final class PlatformIndex
+{
+    private static final int LEAF_SIZE = 4;
+
+    private final EscapeRoomGame.Platform[] platforms;
+    private final int[] listIndex;
+
+    // Node i covers [minX, maxX) x [minY, maxY). Leaves have count > 0 and hold
+    // platforms start .. start+count-1; inner nodes have count == 0 and children
+    // at left[i] and left[i] + 1.
+    private final int[] minX, minY, maxX, maxY;
+    private final int[] start, count, left;
+    private int nodeCount;
+
+    private final int[] stack = new int[64];
+    private int[] results = new int[16];
+    private int resultCount;
+
+    private PlatformIndex(EscapeRoomGame.Platform[] platforms, int[] listIndex)
+    {
+        this.platforms = platforms;
+        this.listIndex = listIndex;
+        int maxNodes = Math.max(1, 2 * platforms.length);
+        minX = new int[maxNodes];
+        minY = new int[maxNodes];
+        maxX = new int[maxNodes];
+        maxY = new int[maxNodes];
+        start = new int[maxNodes];
+        count = new int[maxNodes];
+        left = new int[maxNodes];
+    }
+
+    /**
+     * Indexes the water platforms (water == true) or the solid ones (water == false).
+     */
+    public static PlatformIndex build(ArrayList<EscapeRoomGame.Platform> all, boolean water)
+    {
+        int n = 0;
+        for (EscapeRoomGame.Platform p : all) {
+            if (p.isWater == water) n++;
+        }
+        EscapeRoomGame.Platform[] selected = new EscapeRoomGame.Platform[n];
+        int[] indices = new int[n];
+        n = 0;
+        for (int i = 0; i < all.size(); i++) {
+            if (all.get(i).isWater == water) {
+                selected[n] = all.get(i);
+                indices[n] = i;
+                n++;
+            }
+        }
+
+        PlatformIndex index = new PlatformIndex(selected, indices);
+        if (n > 0) {
+            index.nodeCount = 1;
+            index.buildNode(0, 0, n);
+        }
+        return index;
+    }
+
+    private void buildNode(int node, int from, int to)
+    {
+        int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            EscapeRoomGame.Platform p = platforms[i];
+            x0 = Math.min(x0, p.x);
+            y0 = Math.min(y0, p.y);
+            x1 = Math.max(x1, p.x + p.width);
+            y1 = Math.max(y1, p.y + p.height);
+        }
+        minX[node] = x0;
+        minY[node] = y0;
+        maxX[node] = x1;
+        maxY[node] = y1;
+
+        if (to - from <= LEAF_SIZE) {
+            start[node] = from;
+            count[node] = to - from;
+            return;
+        }
+
+        // Split at the median centre along the longer side of the box
+        boolean splitX = (x1 - x0) >= (y1 - y0);
+        sortByCentre(from, to, splitX);
+        int mid = (from + to) >>> 1;
+
+        int child = nodeCount;
+        nodeCount += 2;
+        count[node] = 0;
+        left[node] = child;
+        buildNode(child, from, mid);
+        buildNode(child + 1, mid, to);
+    }
+
+    // Sorts a slice by platform centre (doubled, to stay in integers)
+    private void sortByCentre(int from, int to, boolean byX)
+    {
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            EscapeRoomGame.Platform p = platforms[i];
+            long centre = byX ? 2L * p.x + p.width : 2L * p.y + p.height;
+            keys[i - from] = (centre << 32) | (i - from);
+        }
+        Arrays.sort(keys);
+
+        EscapeRoomGame.Platform[] sortedPlatforms = new EscapeRoomGame.Platform[to - from];
+        int[] sortedIndices = new int[to - from];
+        for (int k = 0; k < keys.length; k++) {
+            int i = from + (int) keys[k];
+            sortedPlatforms[k] = platforms[i];
+            sortedIndices[k] = listIndex[i];
+        }
+        System.arraycopy(sortedPlatforms, 0, platforms, from, keys.length);
+        System.arraycopy(sortedIndices, 0, listIndex, from, keys.length);
+    }
+
+    /**
+     * Collects every platform whose box touches the given box (edges included;
+     * callers apply their own exact test). Returns the number of hits, read back
+     * with platform(i) and listIndex(i).
+     */
+    public int query(double qMinX, double qMinY, double qMaxX, double qMaxY)
+    {
+        resultCount = 0;
+        if (nodeCount == 0) {
+            return 0;
+        }
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (maxX[node] < qMinX || minX[node] > qMaxX || maxY[node] < qMinY || minY[node] > qMaxY) {
+                continue;
+            }
+            if (count[node] > 0) {
+                for (int i = start[node]; i < start[node] + count[node]; i++) {
+                    EscapeRoomGame.Platform p = platforms[i];
+                    if (p.x + p.width >= qMinX && p.x <= qMaxX && p.y + p.height >= qMinY && p.y <= qMaxY) {
+                        if (resultCount == results.length) {
+                            results = Arrays.copyOf(results, results.length * 2);
+                        }
+                        results[resultCount++] = i;
+                    }
+                }
+            } else {
+                stack[top++] = left[node];
+                stack[top++] = left[node] + 1;
+            }
+        }
+        return resultCount;
+    }
+
+    public EscapeRoomGame.Platform platform(int hit)
+    {
+        return platforms[results[hit]];
+    }
+
+    /** Position of the hit platform in the level's platform list. */
+    public int listIndex(int hit)
+    {
+        return listIndex[results[hit]];
+    }
+
+    public int size()
+    {
+        return platforms.length;
+    }
+}
@@ -0,0 +1,37 @@
+import javafx.scene.paint.Color;
+
+/**
+ * Colours the player can absorb from blocks. Each constant carries its
+ * resource keys and draw colours, so nothing is looked up or built per frame.
+ */
+public enum PowerColor
+{
+    NONE("", Color.GRAY, null),
+    RED("red", Color.RED, Element.FIRE),
+    BLUE("blue", Color.BLUE, Element.ICE),
+    YELLOW("yellow", Color.YELLOW, Element.ELECTRIC),
+    GREEN("green", Color.GRAY, null),
+    PURPLE("purple", Color.rgb(148, 0, 211), null);
+
+    public final String key;
+    public final String label;
+    public final Color color;
+    public final Color outline;
+    // Element fired by this power, or null if it does not shoot
+    public final Element projectile;
+    final String playerImageKey;
+    final String blockImageKey;
+    final String particleImageKey;
+
+    PowerColor(String key, Color color, Element projectile)
+    {
+        this.key = key;
+        this.label = key.toUpperCase();
+        this.color = color;
+        this.outline = color.brighter();
+        this.projectile = projectile;
+        this.playerImageKey = key.isEmpty() ? "player_default" : "player_" + key;
+        this.blockImageKey = "block_" + key;
+        this.particleImageKey = "particle_" + key;
+    }
+}
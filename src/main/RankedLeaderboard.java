@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Leaderboard kept in rank order by an indexable skip list.
+ *
+ * Entries are ordered by score, highest first; equal scores keep the order they
+ * were added in, as the old stable re-sort did. Every forward link also
+ * records how many entries it skips, so finding the entry at a rank, or the
+ * rank of a score, walks O(log n) links instead of the whole list. Insert,
+ * top-k, rank-of-score and the page around a rank are all O(log n + k), and no
+ * call re-sorts anything.
+ *
+ * Not thread-safe: callers must serialize access, as ConcurrentLeaderboard does
+ * with its lock.
+ */
+public final class RankedLeaderboard
+{
+    private static final int MAX_LEVEL = 32;
+    // Chance a node also appears on the next level up
+    private static final double PROMOTE = 0.25;
+
+    private final Node head = new Node(null, 0, MAX_LEVEL);
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private int level = 1;
+    private int size;
+    private long nextSeq;
+    // Search scratch, reused by every insert
+    private final Node[] update = new Node[MAX_LEVEL];
+    private final int[] passed = new int[MAX_LEVEL];
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void clear()
+    {
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        level = 1;
+        size = 0;
+    }
+
+    /** Adds an entry and returns its 0-based position (0 = top). */
+    public int add(EscapeRoomGame.LeaderboardEntry entry)
+    {
+        long seq = nextSeq++;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            passed[i] = i == level - 1 ? 0 : passed[i + 1];
+            while (x.next[i] != null && ranksAbove(x.next[i], entry.score, seq)) {
+                passed[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                passed[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(entry, seq, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (passed[0] - passed[i]);
+            update[i].span[i] = passed[0] - passed[i] + 1;
+        }
+        // Links above the new node now skip one more entry
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+        return passed[0];
+    }
+
+    /** The entry at a 0-based position. */
+    public EscapeRoomGame.LeaderboardEntry get(int index)
+    {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return nodeAt(index).entry;
+    }
+
+    /** The best max entries, highest first. */
+    public ArrayList<EscapeRoomGame.LeaderboardEntry> top(int max)
+    {
+        return range(0, max);
+    }
+
+    /** Up to count entries starting at a 0-based position. */
+    public ArrayList<EscapeRoomGame.LeaderboardEntry> range(int from, int count)
+    {
+        ArrayList<EscapeRoomGame.LeaderboardEntry> out = new ArrayList<>(Math.max(0, Math.min(count, size - from)));
+        if (from < 0 || from >= size) {
+            return out;
+        }
+        for (Node x = nodeAt(from); x != null && out.size() < count; x = x.next[0]) {
+            out.add(x.entry);
+        }
+        return out;
+    }
+
+    /** The entries within radius places of a 0-based position, clipped to the board. */
+    public ArrayList<EscapeRoomGame.LeaderboardEntry> around(int index, int radius)
+    {
+        int from = Math.max(0, index - radius);
+        return range(from, index + radius + 1 - from);
+    }
+
+    /**
+     * The 1-based rank a score would be shown at: one more than the number of
+     * strictly higher scores, so ties share a rank.
+     */
+    public int rankOf(int score)
+    {
+        int higher = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].entry.score > score) {
+                higher += x.span[i];
+                x = x.next[i];
+            }
+        }
+        return higher + 1;
+    }
+
+    private Node nodeAt(int index)
+    {
+        int target = index + 1;
+        int traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= target) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == target) {
+                return x;
+            }
+        }
+        throw new IllegalStateException("skip list spans are inconsistent");
+    }
+
+    // Higher score first, then earlier insertion
+    private static boolean ranksAbove(Node n, int score, long seq)
+    {
+        return n.entry.score > score || (n.entry.score == score && n.seq < seq);
+    }
+
+    private int randomLevel()
+    {
+        int l = 1;
+        while (l < MAX_LEVEL && random.nextDouble() < PROMOTE) {
+            l++;
+        }
+        return l;
+    }
+
+    private static final class Node
+    {
+        final EscapeRoomGame.LeaderboardEntry entry;
+        final long seq;
+        final Node[] next;
+        // Number of entries each link moves forward by
+        final int[] span;
+
+        Node(EscapeRoomGame.LeaderboardEntry entry, long seq, int levels)
+        {
+            this.entry = entry;
+            this.seq = seq;
+            this.next = new Node[levels];
+            this.span = new int[levels];
+        }
+    }
+}
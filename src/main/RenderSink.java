@@ -0,0 +1,13 @@
+/**
+ * Destination for drawn frames. The game loop only asks the engine to render
+ * through this interface, so the same loop can draw to the screen's canvases
+ * or run with nothing drawn at all.
+ */
+public interface RenderSink
+{
+    /** Sink that draws nothing; the default, and what headless games keep. */
+    RenderSink NONE = (game, alpha) -> { };
+
+    /** Draws the game's current state, blended alpha of the way from the previous tick. */
+    void present(EscapeRoomGame game, double alpha);
+}
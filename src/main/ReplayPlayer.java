@@ -0,0 +1,240 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Plays back a file written by ReplayRecorder on its own game.
+ *
+ * The inputs are expanded to one byte per tick when the file is read, so
+ * stepping is a plain array read and an update(int); fast-forwarding runs the
+ * simulation as fast as it goes, with nothing drawn. seek() restores the
+ * nearest keyframe at or before the target and simulates the rest, so any
+ * tick is reached in at most one keyframe interval of updates. The game never
+ * posts scores to the leaderboard.
+ */
+public final class ReplayPlayer
+{
+    private static final int MAX_KEYFRAME_BYTES = 64 << 20;
+
+    private final long seed;
+    private final String playerName;
+    private final int keyframeInterval;
+    private final byte[] inputs;
+    private final int[] keyframeTicks;
+    private final byte[][] keyframes;
+    private final EscapeRoomGame game;
+    private int tick;
+
+    private ReplayPlayer(long seed, String playerName, int keyframeInterval, byte[] inputs,
+                         int[] keyframeTicks, byte[][] keyframes, EscapeRoomGame game)
+    {
+        this.seed = seed;
+        this.playerName = playerName;
+        this.keyframeInterval = keyframeInterval;
+        this.inputs = inputs;
+        this.keyframeTicks = keyframeTicks;
+        this.keyframes = keyframes;
+        this.game = game != null ? game : EscapeRoomGame.headless(seed);
+        this.game.setRecordsScores(false);
+        this.game.setPlayerName(playerName);
+        this.game.restoreState(keyframes[0]);
+    }
+
+    /** Loads a replay onto a fresh headless game. */
+    public static ReplayPlayer open(Path file) throws IOException
+    {
+        return open(file, null);
+    }
+
+    /**
+     * Loads a replay onto the given game (e.g. one that can render), or a
+     * headless one when null. Throws IOException if the file is not a valid replay.
+     */
+    public static ReplayPlayer open(Path file, EscapeRoomGame game) throws IOException
+    {
+        try (InputStream raw = Files.newInputStream(file)) {
+            return read(raw, game);
+        }
+    }
+
+    static ReplayPlayer read(InputStream raw, EscapeRoomGame game) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new GZIPInputStream(raw));
+        if (in.readInt() != ReplayRecorder.MAGIC || in.readShort() != ReplayRecorder.VERSION) {
+            throw new IOException("not a replay file");
+        }
+        in.readShort();
+        long seed = in.readLong();
+        int interval = readVarint(in);
+        String name = in.readUTF();
+
+        byte[] inputs = new byte[1024];
+        int length = 0;
+        ArrayList<Integer> ticks = new ArrayList<>();
+        ArrayList<byte[]> states = new ArrayList<>();
+        while (true) {
+            int tag = in.read();
+            if (tag == ReplayRecorder.TAG_RUN) {
+                int mask = readVarint(in);
+                int run = readVarint(in);
+                if (run < 0 || length + run < 0) {
+                    throw new IOException("replay is too long");
+                }
+                if (length + run > inputs.length) {
+                    inputs = Arrays.copyOf(inputs, Math.max(length + run, inputs.length * 2));
+                }
+                Arrays.fill(inputs, length, length + run, (byte) mask);
+                length += run;
+            } else if (tag == ReplayRecorder.TAG_KEYFRAME) {
+                ticks.add(readVarint(in));
+                int size = readVarint(in);
+                if (size < 0 || size > MAX_KEYFRAME_BYTES) {
+                    throw new IOException("bad keyframe size " + size);
+                }
+                byte[] state = new byte[size];
+                in.readFully(state);
+                states.add(state);
+            } else if (tag == ReplayRecorder.TAG_END) {
+                if (readVarint(in) != length) {
+                    throw new IOException("replay length does not match its inputs");
+                }
+                break;
+            } else {
+                throw new IOException(tag < 0 ? "replay is truncated" : "unknown replay record " + tag);
+            }
+        }
+        if (states.isEmpty() || ticks.get(0) != 0) {
+            throw new IOException("replay has no starting keyframe");
+        }
+
+        int[] keyframeTicks = new int[ticks.size()];
+        for (int i = 0; i < keyframeTicks.length; i++) {
+            keyframeTicks[i] = ticks.get(i);
+        }
+        try {
+            return new ReplayPlayer(seed, name, interval, Arrays.copyOf(inputs, length), keyframeTicks,
+                    states.toArray(new byte[0][]), game);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("bad keyframe: " + e.getMessage(), e);
+        }
+    }
+
+    public EscapeRoomGame game()
+    {
+        return game;
+    }
+
+    public long seed()
+    {
+        return seed;
+    }
+
+    public String playerName()
+    {
+        return playerName;
+    }
+
+    public int keyframeInterval()
+    {
+        return keyframeInterval;
+    }
+
+    public int keyframeCount()
+    {
+        return keyframes.length;
+    }
+
+    /** Ticks recorded. */
+    public int length()
+    {
+        return inputs.length;
+    }
+
+    /** Ticks played so far; the game is in the state from just before this tick's input. */
+    public int tick()
+    {
+        return tick;
+    }
+
+    /** The GameInput mask recorded for a tick. */
+    public int inputAt(int tick)
+    {
+        return inputs[tick] & 0xFF;
+    }
+
+    /** Plays one tick; returns false at the end of the recording. */
+    public boolean step()
+    {
+        if (tick >= inputs.length) {
+            return false;
+        }
+        game.update(inputs[tick++] & 0xFF);
+        return true;
+    }
+
+    /** Plays up to the given number of ticks without rendering. */
+    public void fastForward(int ticks)
+    {
+        int end = (int) Math.min(inputs.length, (long) tick + Math.max(0, ticks));
+        while (tick < end) {
+            game.update(inputs[tick++] & 0xFF);
+        }
+    }
+
+    /** Moves to any tick, backwards or forwards, in at most one keyframe interval of updates. */
+    public void seek(int target)
+    {
+        target = Math.max(0, Math.min(target, inputs.length));
+        int k = keyframeAtOrBefore(target);
+        // Stepping on is cheaper unless a later keyframe lies in between
+        if (target < tick || keyframeTicks[k] > tick) {
+            game.restoreState(keyframes[k]);
+            tick = keyframeTicks[k];
+        }
+        fastForward(target - tick);
+    }
+
+    /**
+     * Replays the whole recording from the start, checking the game against
+     * every keyframe on the way. Returns the tick of the first keyframe that
+     * does not match, or -1 when the run reproduces exactly; a mismatch means
+     * the file was edited or the simulation is not deterministic.
+     */
+    public int verify()
+    {
+        game.restoreState(keyframes[0]);
+        tick = 0;
+        for (int k = 1; k < keyframes.length; k++) {
+            fastForward(keyframeTicks[k] - tick);
+            if (!Arrays.equals(game.captureState(), keyframes[k])) {
+                return keyframeTicks[k];
+            }
+        }
+        fastForward(inputs.length - tick);
+        return -1;
+    }
+
+    private int keyframeAtOrBefore(int target)
+    {
+        int i = Arrays.binarySearch(keyframeTicks, target);
+        return i >= 0 ? i : Math.max(0, -i - 2);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint in replay");
+    }
+}
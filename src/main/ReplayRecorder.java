@@ -0,0 +1,176 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records a run as per-tick GameInput masks plus periodic full-state keyframes.
+ *
+ * Call record() with each tick's mask just before passing it to
+ * EscapeRoomGame.update(int). Masks are run-length encoded (a held key or an
+ * idle player is one record however long it lasts) and every keyframeInterval
+ * ticks the game's captureState() is stored, so ReplayPlayer can seek without
+ * simulating from the start. The file is gzip-compressed; inside, numbers are
+ * unsigned LEB128 varints:
+ *
+ *   int magic "ERRP", short version, short 0, long seed, varint keyframe interval, UTF player name
+ *   then records, each starting with a tag byte:
+ *     RUN       varint mask, varint ticks
+ *     KEYFRAME  varint tick, varint length, state bytes
+ *     END       varint total ticks
+ *
+ * Ticks count from the start of the recording, which always begins with a keyframe.
+ */
+public final class ReplayRecorder
+{
+    static final int MAGIC = 0x45525250; // "ERRP"
+    static final short VERSION = 1;
+    static final int TAG_END = 0;
+    static final int TAG_RUN = 1;
+    static final int TAG_KEYFRAME = 2;
+    static final String DIR_PROPERTY = "escaperoom.replayDir";
+    static final int DEFAULT_KEYFRAME_INTERVAL = 5 * EscapeRoomGame.TICK_RATE;
+
+    private final EscapeRoomGame game;
+    private final int keyframeInterval;
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream(16 * 1024);
+    private int ticks;
+    private int runMask = -1;
+    private int runLength;
+    // Where saveInBackground() writes; null when only saved explicitly
+    private Path directory;
+
+    public ReplayRecorder(EscapeRoomGame game, int keyframeInterval)
+    {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframe interval must be positive");
+        }
+        this.game = game;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * A recorder writing into the directory named by -Descaperoom.replayDir, or
+     * null when it is not set. -Descaperoom.replayKeyframeTicks changes the
+     * keyframe interval.
+     */
+    public static ReplayRecorder fromProperties(EscapeRoomGame game)
+    {
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+        int interval = (int) Math.max(1, Long.getLong("escaperoom.replayKeyframeTicks", DEFAULT_KEYFRAME_INTERVAL));
+        ReplayRecorder recorder = new ReplayRecorder(game, interval);
+        recorder.directory = Paths.get(dir);
+        return recorder;
+    }
+
+    /** Logs the input for the tick about to run, and a keyframe first when one is due. */
+    public void record(int mask)
+    {
+        if (ticks % keyframeInterval == 0) {
+            endRun();
+            byte[] state = game.captureState();
+            records.write(TAG_KEYFRAME);
+            writeVarint(records, ticks);
+            writeVarint(records, state.length);
+            records.write(state, 0, state.length);
+        }
+        if (mask != runMask) {
+            endRun();
+            runMask = mask;
+        }
+        runLength++;
+        ticks++;
+    }
+
+    public int ticks()
+    {
+        return ticks;
+    }
+
+    /** The complete, compressed replay file for everything recorded so far. */
+    public byte[] toByteArray()
+    {
+        endRun();
+        ByteArrayOutputStream file = new ByteArrayOutputStream(records.size() / 4 + 256);
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeLong(game.seed());
+            writeVarint(out, keyframeInterval);
+            out.writeUTF(game.getPlayerName());
+            records.writeTo(out);
+            out.write(TAG_END);
+            writeVarint(out, ticks);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return file.toByteArray();
+    }
+
+    /** Writes the replay through a temp file and an atomic rename. */
+    public void save(Path target) throws IOException
+    {
+        byte[] bytes = toByteArray();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, bytes);
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Saves into the configured directory on a separate thread. Stop calling
+     * record() first; the recorder is handed over to that thread.
+     */
+    public void saveInBackground()
+    {
+        if (directory == null) {
+            throw new IllegalStateException("no replay directory configured");
+        }
+        Path target = directory.resolve("replay-" + System.currentTimeMillis() + ".errp");
+        Thread writer = new Thread(() -> {
+            try {
+                Files.createDirectories(directory);
+                save(target);
+            } catch (IOException e) {
+                System.out.println("Could not save replay: " + e.getMessage());
+            }
+        }, "replay-writer");
+        writer.start();
+    }
+
+    private void endRun()
+    {
+        if (runLength > 0) {
+            records.write(TAG_RUN);
+            writeVarint(records, runMask);
+            writeVarint(records, runLength);
+            runLength = 0;
+        }
+    }
+
+    static void writeVarint(OutputStream out, int value)
+    {
+        try {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line check of a recorded run, for bug reports and score audits.
+ *
+ * Re-simulates the whole replay headless, checks it against every keyframe
+ * and prints how it ended, how often each input was used and how fast the
+ * playback ran. With a tick, also seeks there and prints the state at that
+ * point.
+ *
+ * Usage: ReplayTool <replay file> [tick]
+ */
+public final class ReplayTool
+{
+    private ReplayTool() {
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1) {
+            System.out.println("Usage: ReplayTool <replay file> [tick]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        ReplayPlayer replay = ReplayPlayer.open(file);
+        int length = replay.length();
+        System.out.println(file.getFileName() + ": player " + replay.playerName() + ", seed " + replay.seed());
+        System.out.printf("%d ticks (%.1f s), %d keyframes every %d ticks%n", length,
+                length / (double) EscapeRoomGame.TICK_RATE, replay.keyframeCount(), replay.keyframeInterval());
+
+        int jumps = 0, actions = 0, absorbs = 0, rewinds = 0, bonusLives = 0;
+        for (int t = 0; t < length; t++) {
+            int mask = replay.inputAt(t);
+            if ((mask & GameInput.JUMP) != 0) jumps++;
+            if ((mask & GameInput.ACTION) != 0) actions++;
+            if ((mask & GameInput.ABSORB) != 0) absorbs++;
+            if ((mask & GameInput.REWIND) != 0) rewinds++;
+            if ((mask & GameInput.BONUS_LIFE) != 0) bonusLives++;
+        }
+        System.out.println("Presses: " + jumps + " jump, " + actions + " action, " + absorbs + " absorb, "
+                + rewinds + " rewind, " + bonusLives + " bonus life");
+
+        long start = System.nanoTime();
+        int diverged = replay.verify();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (diverged >= 0) {
+            System.out.println("DIVERGED: state differs from the recording at tick " + diverged);
+        } else {
+            System.out.printf("Reproduced exactly in %.0f ms (%.0fx real time)%n", seconds * 1000,
+                    length / (double) EscapeRoomGame.TICK_RATE / Math.max(seconds, 1e-9));
+        }
+        printState("End", replay.game());
+
+        if (args.length > 1) {
+            int target = Integer.parseInt(args[1]);
+            start = System.nanoTime();
+            replay.seek(target);
+            System.out.printf("Seek to tick %d took %.2f ms%n", replay.tick(), (System.nanoTime() - start) / 1e6);
+            printState("At tick " + replay.tick(), replay.game());
+        }
+    }
+
+    private static void printState(String label, EscapeRoomGame game)
+    {
+        System.out.printf("%s: level %d, score %d, lives %d%s, player at (%.1f, %.1f)%n", label, game.level,
+                game.getTotalScore(), game.getLives(),
+                game.isGameOver() ? ", game over" : game.gameWon ? ", level complete" : "",
+                game.player.x, game.player.y);
+    }
+}
@@ -1,95 +1,185 @@
 import java.io.InputStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 import javafx.scene.media.AudioClip;
 import javafx.scene.paint.Color;
 
-public class ResourceManager {
+/**
+ * Loads and hands out the game's images and sounds.
+ *
+ * Assets are decoded in parallel on a small worker pool. startLoading() returns
+ * at once so a splash screen can show progress(); getInstance() waits for
+ * loading to finish.
+ */
+public class ResourceManager implements AudioSink {
     private static ResourceManager instance;
-    private Map<String, Image> images = new HashMap<>();
-    private Map<String, AudioClip> sounds = new HashMap<>();
+    // Backgrounds and stretched images, decoded on demand; small sprites live in the atlas
+    private final ImageCache images = new ImageCache(ImageCache.budgetFromProperties());
+    private final List<String> spriteKeys = new ArrayList<>();
+    private final Map<String, Image> decodedSprites = new ConcurrentHashMap<>();
+    private volatile SpriteAtlas atlas;
+    private Map<String, AudioClip> sounds = new ConcurrentHashMap<>();
+
+    private final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+    private final AtomicInteger loaded = new AtomicInteger();
+    private final ExecutorService loader;
+    private final CompletableFuture<Void> ready;
+    // Reused by drawGoalFallback so the star outline is not reallocated every frame
+    private final double[] goalXPoints = new double[8];
+    private final double[] goalYPoints = new double[8];
     
     private ResourceManager() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        loader = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "asset-loader");
+            t.setDaemon(true);
+            return t;
+        });
+
         loadImages();
         loadSounds();
+
+        ready = CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                .thenRun(this::buildAtlas)
+                .whenComplete((ok, error) -> loader.shutdown());
     }
-    
-    public static ResourceManager getInstance() {
+
+    /**
+     * Starts loading every asset in the background, once; later calls return
+     * the same manager. Images and sounds appear as they finish decoding.
+     */
+    public static synchronized ResourceManager startLoading() {
         if (instance == null) {
             instance = new ResourceManager();
         }
         return instance;
     }
+
+    /** The loaded manager; blocks until loading has finished. */
+    public static ResourceManager getInstance() {
+        ResourceManager rm = startLoading();
+        rm.ready.join();
+        return rm;
+    }
+
+    /** Completes once every asset has been decoded and the atlas is built. */
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    /** Fraction of assets loaded so far, from 0 to 1. */
+    public double progress() {
+        return tasks.isEmpty() ? 1.0 : loaded.get() / (double) tasks.size();
+    }
+
+    private void submit(Runnable load) {
+        tasks.add(CompletableFuture.runAsync(() -> {
+            try {
+                load.run();
+            } finally {
+                loaded.incrementAndGet();
+            }
+        }, loader));
+    }
+
+    // Packed in registration order, so the layout does not depend on which decode finished first
+    private void buildAtlas() {
+        SpriteAtlas.Builder builder = new SpriteAtlas.Builder();
+        for (String key : spriteKeys) {
+            builder.add(key, decodedSprites.get(key));
+        }
+        atlas = builder.build();
+        decodedSprites.clear();
+    }
     
     private void loadImages()
     {
         //Start Image
 
-        loadImage("start","/images/start/start.png");
+        loadImage("start","/images/start/start.png", EscapeRoomGame.WIDTH, EscapeRoomGame.HEIGHT);
         // Background
-        loadImage("background2", "/images/background/background2.png");
-        loadImage("background", "/images/background/background.png");
+        loadImage("background2", "/images/background/background2.png", EscapeRoomGame.WIDTH, EscapeRoomGame.HEIGHT);
+        loadImage("background", "/images/background/background.png", EscapeRoomGame.WIDTH, EscapeRoomGame.HEIGHT);
         
         // Player
-        loadImage("player_default", "/images/player/player_default.png");
-        loadImage("player_red", "/images/player/player_red.png");
-        loadImage("player_blue", "/images/player/player_blue.png");
-        loadImage("player_yellow", "/images/player/player_yellow.png");
-        loadImage("player_green", "/images/player/player_green.png");
-        loadImage("player_purple", "/images/player/player_purple.png");
-        loadImage("player_shield", "/images/player/shield.png");
+        loadSprite("player_default", "/images/player/player_default.png", EscapeRoomGame.PLAYER_SIZE);
+        loadSprite("player_red", "/images/player/player_red.png", EscapeRoomGame.PLAYER_SIZE);
+        loadSprite("player_blue", "/images/player/player_blue.png", EscapeRoomGame.PLAYER_SIZE);
+        loadSprite("player_yellow", "/images/player/player_yellow.png", EscapeRoomGame.PLAYER_SIZE);
+        loadSprite("player_green", "/images/player/player_green.png", EscapeRoomGame.PLAYER_SIZE);
+        loadSprite("player_purple", "/images/player/player_purple.png", EscapeRoomGame.PLAYER_SIZE);
+        loadSprite("player_shield", "/images/player/shield.png", EscapeRoomGame.PLAYER_SIZE + 20);
         
         // Enemies
-        loadImage("enemy_normal", "/images/enemies/enemy_normal.png");
-        loadImage("enemy_fire", "/images/enemies/enemy_fire.png");
-        loadImage("enemy_ice", "/images/enemies/enemy_ice.png");
-        loadImage("enemy_electric", "/images/enemies/enemy_electric.png");
+        loadSprite("enemy_normal", "/images/enemies/enemy_normal.png", 30);
+        loadSprite("enemy_fire", "/images/enemies/enemy_fire.png", 30);
+        loadSprite("enemy_ice", "/images/enemies/enemy_ice.png", 30);
+        loadSprite("enemy_electric", "/images/enemies/enemy_electric.png", 30);
         
-        // Platforms
-        loadImage("platform", "/images/platforms/platform.png");
-        loadImage("platform_water", "/images/platforms/platform_water.png");
+        // Platforms: stretched to each platform's size, so decoded per size on first use
+        images.register("platform", "/images/platforms/platform.png", 150, 20);
+        images.register("platform_water", "/images/platforms/platform_water.png", 120, 50);
         
         // Colored Blocks
-        loadImage("block_red", "/images/blocks/block_red.png");
-        loadImage("block_blue", "/images/blocks/block_blue.png");
-        loadImage("block_yellow", "/images/blocks/block_yellow.png");
-        loadImage("block_green", "/images/blocks/block_green.png");
-        loadImage("block_purple", "/images/blocks/block_purple.png");
+        loadSprite("block_red", "/images/blocks/block_red.png", 50);
+        loadSprite("block_blue", "/images/blocks/block_blue.png", 50);
+        loadSprite("block_yellow", "/images/blocks/block_yellow.png", 50);
+        loadSprite("block_green", "/images/blocks/block_green.png", 50);
+        loadSprite("block_purple", "/images/blocks/block_purple.png", 50);
         
         // Projectiles
-        loadImage("projectile_fire", "/images/projectiles/projectile_fire.png");
-        loadImage("projectile_ice", "/images/projectiles/projectile_ice.png");
-        loadImage("projectile_electric", "/images/projectiles/projectile_electric.png");
+        loadSprite("projectile_fire", "/images/projectiles/projectile_fire.png", 10);
+        loadSprite("projectile_ice", "/images/projectiles/projectile_ice.png", 10);
+        loadSprite("projectile_electric", "/images/projectiles/projectile_electric.png", 10);
         
         // Particles
-        loadImage("particle_red", "/images/particles/particle_red.png");
-        loadImage("particle_blue", "/images/particles/particle_blue.png");
-        loadImage("particle_yellow", "/images/particles/particle_yellow.png");
-        loadImage("particle_green", "/images/particles/particle_green.png");
-        loadImage("particle_purple", "/images/particles/particle_purple.png");
+        loadSprite("particle_red", "/images/particles/particle_red.png", ParticleSystem.SIZE);
+        loadSprite("particle_blue", "/images/particles/particle_blue.png", ParticleSystem.SIZE);
+        loadSprite("particle_yellow", "/images/particles/particle_yellow.png", ParticleSystem.SIZE);
+        loadSprite("particle_green", "/images/particles/particle_green.png", ParticleSystem.SIZE);
+        loadSprite("particle_purple", "/images/particles/particle_purple.png", ParticleSystem.SIZE);
         
         // Goal
-        loadImage("goal", "/images/goal/goal.png");
+        loadSprite("goal", "/images/goal/goal.png", 50);
         
         // UI
-        loadImage("ui_power_indicator", "/images/ui/power_indicator.png");
+        loadSprite("ui_power_indicator", "/images/ui/power_indicator.png", 30);
     }
     
-    private void loadImage(String key, String path) {
+    // Registers a full-screen image and decodes it in the background, so the splash and first level do not wait
+    private void loadImage(String key, String path, int width, int height) {
+        images.register(key, path, width, height);
+        submit(() -> images.get(key));
+    }
+    
+    /**
+     * Decodes a square sprite at the size it is drawn at and queues it for the atlas.
+     */
+    private void loadSprite(String key, String path, int size) {
+        spriteKeys.add(key);
+        submit(() -> decodeSprite(key, path, size));
+    }
+
+    private void decodeSprite(String key, String path, int size) {
         try {
             InputStream is = getClass().getResourceAsStream(path);
             if (is != null) {
-                Image img = new Image(is);
-                images.put(key, img);
+                decodedSprites.put(key, new Image(is, size, size, false, true));
             }
         } catch (Exception e) {
             System.out.println("Could not load image: " + path + " - " + e.getMessage());
         }
     }
-    
+
     private void loadSounds() {
         loadSound("jump", "/sounds/jump.wav");
         loadSound("shoot", "/sounds/shoot.wav");
@@ -99,19 +189,18 @@ public class ResourceManager {
         loadSound("level_complete", "/sounds/level_complete.wav");
         loadSound("power_use", "/sounds/power_use.wav");
         loadSound("shield_activate", "/sounds/shield_activate.wav");
-        loadSound("background_music", "/sounds/background_music.wav");
         loadSound("aag","/sounds/aag.wav");
     }
     
     private void loadSound(String key, String path) {
+        submit(() -> decodeSound(key, path));
+    }
+
+    private void decodeSound(String key, String path) {
         try {
             java.net.URL url = getClass().getResource(path);
             if (url != null) {
                 AudioClip sound = new AudioClip(url.toExternalForm());
-                if (key.equals("background_music")) 
-                    {
-                    sound.setCycleCount(AudioClip.INDEFINITE);
-                }
                 sounds.put(key, sound);
             }
         } catch (Exception e) {
@@ -122,9 +211,39 @@ public class ResourceManager {
     public Image getImage(String key) {
         return images.get(key);
     }
+
+    /** The image decoded at exactly the size it will be drawn at. */
+    public Image getImage(String key, int width, int height) {
+        return images.get(key, width, height);
+    }
     
+    /** A handle that fetches the image through the cache on each use, or null if it is missing. */
+    public ImageCache.Handle getImageHandle(String key) {
+        return images.handle(key);
+    }
+
+    /** As above, for the image decoded at the given size. */
+    public ImageCache.Handle getImageHandle(String key, int width, int height) {
+        return images.handle(key, width, height);
+    }
+
+    /** The image if it has already been decoded, without waiting for it. */
+    public Image peekImage(String key) {
+        return images.peek(key);
+    }
+
     public boolean hasImage(String key) {
-        return images.containsKey(key) && images.get(key) != null;
+        return images.contains(key);
+    }
+
+    /** Atlas region for a small sprite, or null if it is missing. */
+    public SpriteAtlas.Region getSprite(String key) {
+        return atlas == null ? null : atlas.get(key);
+    }
+    
+    /** The loaded clip for a sound, or null if it is missing. */
+    public AudioClip getClip(String key) {
+        return sounds.get(key);
     }
     
     public void playSound(String key) {
@@ -134,6 +253,7 @@ public class ResourceManager {
         }
     }
     
+    @Override
     public void playSound(String key, double volume) {
         AudioClip sound = sounds.get(key);
         if (sound != null) {
@@ -172,36 +292,41 @@ public class ResourceManager {
         gc.strokeOval(x, y, size, size);
     }
     
-    public void drawBlockFallback(GraphicsContext gc, int x, int y, int width, int height, Color color) {
+    public void drawBlockFallback(GraphicsContext gc, int x, int y, int width, int height, Color color, Color outline) {
         gc.setFill(color);
         gc.fillRect(x, y, width, height);
-        gc.setStroke(color.brighter());
+        gc.setStroke(outline);
         gc.strokeRect(x, y, width, height);
     }
     
-    public void drawPlatformFallback(GraphicsContext gc, int x, int y, int width, int height, Color color) {
+    public void drawPlatformFallback(GraphicsContext gc, int x, int y, int width, int height, Color color, Color outline) {
         gc.setFill(color);
         gc.fillRect(x, y, width, height);
-        gc.setStroke(color.brighter());
+        gc.setStroke(outline);
         gc.strokeRect(x, y, width, height);
     }
     
-    public void drawProjectileFallback(GraphicsContext gc, double x, double y, int size, Color color) {
+    public void drawProjectileFallback(GraphicsContext gc, double x, double y, int size, Color color, Color highlight) {
         gc.setFill(color);
         gc.fillOval(x - size/2, y - size/2, size, size);
-        gc.setFill(color.brighter());
+        gc.setFill(highlight);
         gc.fillOval(x - size/2 + 2, y - size/2 + 2, size - 4, size - 4);
     }
     
-    public void drawParticleFallback(GraphicsContext gc, double x, double y, int size, Color color, double alpha) {
-        gc.setFill(Color.color(color.getRed(), color.getGreen(), color.getBlue(), alpha));
+    // Callers pass a colour with the fade already applied, so nothing is allocated per particle
+    public void drawParticleFallback(GraphicsContext gc, double x, double y, int size, Color fadedColor) {
+        gc.setFill(fadedColor);
         gc.fillOval(x, y, size, size);
     }
     
     public void drawGoalFallback(GraphicsContext gc, int x, int y, int pulse) {
         gc.setFill(Color.YELLOW);
-        double[] xPoints = {x + 25, x + 40 + pulse, x + 30, x + 35, x + 25, x + 15, x + 20, x + 10 - pulse};
-        double[] yPoints = {y + pulse, y + 20, y + 25, y + 45, y + 35, y + 45, y + 25, y + 20};
+        double[] xPoints = goalXPoints;
+        double[] yPoints = goalYPoints;
+        xPoints[0] = x + 25; xPoints[1] = x + 40 + pulse; xPoints[2] = x + 30; xPoints[3] = x + 35;
+        xPoints[4] = x + 25; xPoints[5] = x + 15; xPoints[6] = x + 20; xPoints[7] = x + 10 - pulse;
+        yPoints[0] = y + pulse; yPoints[1] = y + 20; yPoints[2] = y + 25; yPoints[3] = y + 45;
+        yPoints[4] = y + 35; yPoints[5] = y + 45; yPoints[6] = y + 25; yPoints[7] = y + 20;
         gc.fillPolygon(xPoints, yPoints, 8);
         gc.setStroke(Color.ORANGE);
         gc.strokePolygon(xPoints, yPoints, 8);
@@ -0,0 +1,149 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A run's progress between levels, and its binary file format.
+ *
+ * Layout (big-endian):
+ *   int    magic "ERSV"
+ *   short  schema version
+ *   int    body length
+ *   body   fields of that version, in the order below
+ *   int    CRC32 of everything before it
+ *
+ * Version 1 body: long saved-at millis, UTF player name, int level, int lives,
+ * int total score, short level count, then one byte of stars per level.
+ * Later versions only append fields, and the body length lets a reader skip
+ * any it does not know; a file from a newer schema, or one whose checksum
+ * does not match, is rejected with an IOException.
+ */
+public final class SaveGame
+{
+    static final int MAGIC = 0x45525356; // "ERSV"
+    static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 4;
+    private static final int MAX_BODY_BYTES = 64 << 10;
+    private static final int MAX_LEVELS = 10_000;
+
+    public final String playerName;
+    /** Level the run resumes at, from its start. */
+    public final int level;
+    public final int lives;
+    public final int totalScore;
+    public final long savedAtMillis;
+    // Stars earned on each level so far, index 0 being level 1
+    private final byte[] stars;
+
+    public SaveGame(String playerName, int level, int lives, int totalScore, byte[] stars, long savedAtMillis)
+    {
+        this.playerName = playerName;
+        this.level = level;
+        this.lives = lives;
+        this.totalScore = totalScore;
+        this.stars = stars.clone();
+        this.savedAtMillis = savedAtMillis;
+    }
+
+    /** Stars earned on a level, or 0 if it has not been completed. */
+    public int starsFor(int level)
+    {
+        return level >= 1 && level <= stars.length ? stars[level - 1] : 0;
+    }
+
+    /** Levels with a star rating stored. */
+    public int ratedLevels()
+    {
+        return stars.length;
+    }
+
+    byte[] starsCopy()
+    {
+        return stars.clone();
+    }
+
+    /** The complete file contents, checksum included. */
+    public byte[] encode()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + stars.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(0); // body length, patched below
+            out.writeLong(savedAtMillis);
+            out.writeUTF(playerName);
+            out.writeInt(level);
+            out.writeInt(lives);
+            out.writeInt(totalScore);
+            out.writeShort(stars.length);
+            out.write(stars);
+            out.writeInt(0); // checksum, patched below
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        int crcOffset = buf.capacity() - 4;
+        buf.putInt(6, crcOffset - HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, crcOffset);
+        buf.putInt(crcOffset, (int) crc.getValue());
+        return buf.array();
+    }
+
+    /** Parses what encode() wrote; throws IOException if the data is damaged or not a save. */
+    public static SaveGame decode(byte[] data) throws IOException
+    {
+        if (data.length < HEADER_BYTES + 4) {
+            throw new IOException("save is truncated");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("not a save file");
+        }
+        int version = buf.getShort(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("unsupported save version " + version);
+        }
+        int bodyLength = buf.getInt(6);
+        if (bodyLength < 0 || bodyLength > MAX_BODY_BYTES || HEADER_BYTES + bodyLength + 4 != data.length) {
+            throw new IOException("save is truncated or has trailing data");
+        }
+        int crcOffset = HEADER_BYTES + bodyLength;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, crcOffset);
+        if (buf.getInt(crcOffset) != (int) crc.getValue()) {
+            throw new IOException("save checksum does not match");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, HEADER_BYTES, bodyLength));
+        long savedAt = in.readLong();
+        String name = in.readUTF();
+        int level = in.readInt();
+        int lives = in.readInt();
+        int score = in.readInt();
+        int levels = in.readUnsignedShort();
+        if (level < 1 || lives < 1 || score < 0 || levels > MAX_LEVELS) {
+            throw new IOException("save has out-of-range progress");
+        }
+        byte[] stars = new byte[levels];
+        in.readFully(stars);
+        for (byte s : stars) {
+            if (s < 0 || s > 3) {
+                throw new IOException("save has a bad star rating " + s);
+            }
+        }
+        return new SaveGame(name, level, lives, score, stars, savedAt);
+    }
+
+    @Override
+    public String toString()
+    {
+        return playerName + ", level " + level + ", " + lives + " lives, score " + totalScore
+                + ", stars " + Arrays.toString(stars);
+    }
+}
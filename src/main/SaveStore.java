@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single save slot on disk.
+ *
+ * save() encodes the progress on the caller's thread (a few dozen bytes) and
+ * queues the bytes; a background writer writes them to a temp file, forces it
+ * to disk and renames it over the save, so the file is always either the old
+ * save or the new one. When saves queue up faster than the disk takes them,
+ * only the newest is written. The file is not read until load() is first
+ * called, and a save that fails its checksum or cannot be parsed is reported
+ * and treated as no save at all.
+ */
+public final class SaveStore
+{
+    private static final long FLUSH_TIMEOUT_SECONDS = 2;
+    // Queued in place of file contents to remove the save
+    private static final byte[] DELETE = new byte[0];
+
+    private final Path file, temp;
+    // File contents to write (or DELETE), or latches to release once everything before them is done
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private boolean loaded;
+    private SaveGame current;
+
+    private SaveStore(Path file)
+    {
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /** Starts the writer for the save at the given path; nothing is read yet. */
+    public static SaveStore open(Path file)
+    {
+        SaveStore store = new SaveStore(file);
+        Thread writer = new Thread(store::writeLoop, "save-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(store::flush, "save-flush"));
+        return store;
+    }
+
+    /** The saved run, reading the file on the first call; null when there is none or it is damaged. */
+    public synchronized SaveGame load()
+    {
+        if (!loaded) {
+            loaded = true;
+            try {
+                current = SaveGame.decode(Files.readAllBytes(file));
+            } catch (NoSuchFileException e) {
+                current = null;
+            } catch (IOException e) {
+                System.out.println("Could not read save: " + e.getMessage());
+                current = null;
+            }
+        }
+        return current;
+    }
+
+    /** Replaces the save; returns once the bytes are queued for the writer. */
+    public synchronized void save(SaveGame game)
+    {
+        loaded = true;
+        current = game;
+        queue.add(game.encode());
+    }
+
+    /** Removes the save, e.g. once its run has ended. */
+    public synchronized void clear()
+    {
+        loaded = true;
+        current = null;
+        queue.add(DELETE);
+    }
+
+    /** Blocks until everything queued so far is on disk, or a couple of seconds have passed. */
+    public void flush()
+    {
+        CountDownLatch done = new CountDownLatch(1);
+        queue.add(done);
+        try {
+            done.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop()
+    {
+        ArrayList<Object> batch = new ArrayList<>();
+        while (true) {
+            batch.clear();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            // Each write replaces the whole file, so only the last one in the batch matters
+            byte[] latest = null;
+            for (Object item : batch) {
+                if (item instanceof byte[]) {
+                    latest = (byte[]) item;
+                }
+            }
+            if (latest != null) {
+                write(latest);
+            }
+
+            for (Object item : batch) {
+                if (item instanceof CountDownLatch) {
+                    ((CountDownLatch) item).countDown();
+                }
+            }
+        }
+    }
+
+    private void write(byte[] bytes)
+    {
+        try {
+            if (bytes == DELETE) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.wrap(bytes);
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+                ch.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The progress is still in memory and goes out with the next save
+            System.out.println("Could not write save: " + e.getMessage());
+        }
+    }
+}
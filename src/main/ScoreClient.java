@@ -0,0 +1,263 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends this cabinet's scores to a ScoreServer and keeps a copy of its top list.
+ *
+ * Scores are first appended to a local outbox file and forced to disk, so
+ * nothing is lost while the server is down or the game is closed. A daemon
+ * thread waits briefly for more scores, then posts the whole outbox as one
+ * gzip-compressed batch and empties it once the server has accepted it;
+ * failures back off exponentially and the outbox is retried as is. Each record
+ * carries this process's client id and a sequence number, so a batch that
+ * reached the server but was not yet cleared from the outbox is recognised
+ * as a resend. The top list is fetched with If-None-Match and only re-parsed
+ * when it changed.
+ *
+ * Off unless -Descaperoom.scoreServer=http://host:port is given.
+ */
+public final class ScoreClient
+{
+    static final String SERVER_PROPERTY = "escaperoom.scoreServer";
+    static final int TOP_K = 10;
+    private static final long BATCH_DELAY_MILLIS = 200;
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final Object REFRESH = new Object();
+
+    private final URI server;
+    private final Path outbox;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final String clientId = UUID.randomUUID().toString();
+    private volatile List<EscapeRoomGame.LeaderboardEntry> top;
+
+    // Sender thread state
+    private long seq;
+    private String etag;
+    private long backoffMillis = MIN_BACKOFF_MILLIS;
+    private long retryAt;
+
+    private ScoreClient(URI server, Path outbox)
+    {
+        this.server = server;
+        this.outbox = outbox;
+    }
+
+    /** A client for the server named by the system property, or null when it is not set. */
+    public static ScoreClient fromProperties(Path outbox)
+    {
+        String url = System.getProperty(SERVER_PROPERTY);
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        return start(URI.create(url.endsWith("/") ? url : url + "/"), outbox);
+    }
+
+    public static ScoreClient start(URI server, Path outbox)
+    {
+        ScoreClient client = new ScoreClient(server, outbox);
+        Thread sender = new Thread(client::sendLoop, "score-client");
+        sender.setDaemon(true);
+        sender.start();
+        return client;
+    }
+
+    /** Queues a score for the server; returns immediately. */
+    public void submit(EscapeRoomGame.LeaderboardEntry entry)
+    {
+        queue.add(entry);
+    }
+
+    /** Asks for the server's top list to be fetched again. */
+    public void refreshTop()
+    {
+        queue.add(REFRESH);
+    }
+
+    /** The last top list fetched from the server, best first, or null before the first fetch. */
+    public List<EscapeRoomGame.LeaderboardEntry> top()
+    {
+        return top;
+    }
+
+    private void sendLoop()
+    {
+        ArrayList<Object> batch = new ArrayList<>();
+        boolean refresh = true;
+        while (true) {
+            batch.clear();
+            try {
+                boolean due = refresh || pendingInOutbox();
+                long wait = due ? Math.max(1, retryAt - System.currentTimeMillis()) : Long.MAX_VALUE;
+                Object first = queue.poll(wait, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    // Give a burst of scores a moment to arrive and share one request
+                    Thread.sleep(BATCH_DELAY_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            StringBuilder lines = new StringBuilder();
+            for (Object item : batch) {
+                if (item == REFRESH) {
+                    refresh = true;
+                } else {
+                    EscapeRoomGame.LeaderboardEntry e = (EscapeRoomGame.LeaderboardEntry) item;
+                    lines.append(clientId).append('\t').append(++seq).append('\t')
+                            .append(e.name.replace('\t', ' ').replace('\n', ' ')).append('\t')
+                            .append(e.score).append('\n');
+                }
+            }
+            if (lines.length() > 0) {
+                appendToOutbox(lines);
+            }
+
+            if (pendingInOutbox() && System.currentTimeMillis() >= retryAt && sendOutbox()) {
+                refresh = true;
+            }
+            if (refresh && System.currentTimeMillis() >= retryAt) {
+                refresh = !fetchTop();
+            }
+        }
+    }
+
+    private void appendToOutbox(CharSequence lines)
+    {
+        try (FileChannel ch = FileChannel.open(outbox, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buf = StandardCharsets.UTF_8.encode(lines.toString());
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(false);
+        } catch (IOException e) {
+            System.out.println("Could not write score outbox: " + e.getMessage());
+        }
+    }
+
+    private boolean pendingInOutbox()
+    {
+        try {
+            return Files.isRegularFile(outbox) && Files.size(outbox) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Posts every complete outbox line as one gzip batch; empties the outbox on success
+    private boolean sendOutbox()
+    {
+        try {
+            byte[] bytes = Files.readAllBytes(outbox);
+            // A line without its newline is a torn append from a crash; it is dropped with the rest
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') end--;
+            if (end == 0) {
+                clearOutbox();
+                return false;
+            }
+
+            ByteArrayOutputStream packed = new ByteArrayOutputStream(end / 4 + 64);
+            try (GZIPOutputStream gz = new GZIPOutputStream(packed)) {
+                gz.write(bytes, 0, end);
+            }
+            HttpRequest request = HttpRequest.newBuilder(server.resolve("scores"))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "text/plain; charset=utf-8")
+                    .header("Content-Encoding", "gzip")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(packed.toByteArray()))
+                    .build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("server answered " + response.statusCode() + ": " + response.body());
+            }
+
+            // Only this thread appends, so nothing arrived since the read
+            clearOutbox();
+            backoffMillis = MIN_BACKOFF_MILLIS;
+            return true;
+        } catch (IOException e) {
+            backOff("Could not send scores: " + e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void clearOutbox() throws IOException
+    {
+        try (FileChannel ch = FileChannel.open(outbox, StandardOpenOption.WRITE)) {
+            ch.truncate(0);
+            ch.force(false);
+        }
+    }
+
+    private boolean fetchTop()
+    {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(server.resolve("top?k=" + TOP_K)).timeout(TIMEOUT);
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 304) {
+                return true;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("server answered " + response.statusCode());
+            }
+
+            ArrayList<EscapeRoomGame.LeaderboardEntry> entries = new ArrayList<>(TOP_K);
+            for (String line : response.body().split("\n")) {
+                int tab = line.lastIndexOf('\t');
+                if (tab < 0) continue;
+                try {
+                    entries.add(new EscapeRoomGame.LeaderboardEntry(line.substring(0, tab),
+                            Integer.parseInt(line.substring(tab + 1))));
+                } catch (NumberFormatException e) {
+                    // Skip malformed line
+                }
+            }
+            top = Collections.unmodifiableList(entries);
+            etag = response.headers().firstValue("ETag").orElse(null);
+            return true;
+        } catch (IOException e) {
+            backOff("Could not fetch top scores: " + e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void backOff(String message)
+    {
+        System.out.println(message + " (retrying in " + backoffMillis / 1000 + "s)");
+        retryAt = System.currentTimeMillis() + backoffMillis;
+        backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Shared score service for several cabinets, run as its own process.
+ *
+ *   POST /scores   body: "client TAB seq TAB name TAB score" lines, optionally
+ *                  gzip-compressed (Content-Encoding: gzip); answers "accepted N"
+ *                  once the batch is on disk, or 503 if it could not be stored
+ *   GET  /top?k=N  "name TAB score" lines, best first, with an ETag; a request
+ *                  whose If-None-Match still matches gets 304 and no body
+ *   GET  /rank?score=N  1-based rank the score would have
+ *
+ * Requests are handled on the server's single dispatcher thread, which also
+ * makes the board updates trivially ordered. A batch is parsed straight from
+ * the request bytes, applied to the ConcurrentLeaderboard in one go and queued
+ * on a LeaderboardStore; the reply is sent from the store's writer once the
+ * batch has been forced to disk, so the dispatcher moves on meanwhile and
+ * batches arriving together share one fsync. After each compaction the board
+ * is rebased onto the new snapshot, so it only holds in memory what the log
+ * does.
+ * Clients number their submissions; a record whose seq is not above the last
+ * one seen from that client is a resend and is skipped. That table lives in
+ * memory, so it covers client retries but not a server restart mid-retry.
+ *
+ * Usage: ScoreServer [port] [board file]
+ */
+public final class ScoreServer
+{
+    static final int DEFAULT_PORT = 8642;
+    static final String DEFAULT_BOARD = "score-server.bin";
+    private static final int DEFAULT_TOP = 10;
+
+    private final HttpServer http;
+    private final LeaderboardStore store;
+    private final ConcurrentLeaderboard board = new ConcurrentLeaderboard();
+    // Highest seq ingested per client id; only touched on the dispatcher thread
+    private final Map<String, Long> lastSeq = new HashMap<>();
+    // Entries added to the board since its last rebase, and how many were added before them
+    private final ArrayList<EscapeRoomGame.LeaderboardEntry> sinceRebase = new ArrayList<>();
+    private long rebasedAt;
+    private LeaderboardStore.Generation rebasedOn;
+    // Changes on every start, so ETags from an earlier run never match
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    private ScoreServer(HttpServer http, Path boardFile)
+    {
+        this.http = http;
+        this.store = LeaderboardStore.open(boardFile);
+        board.reset(store.base(), store.loaded());
+        http.createContext("/scores", this::handleScores);
+        http.createContext("/top", this::handleTop);
+        http.createContext("/rank", this::handleRank);
+        // null executor: requests run on the dispatcher thread, one at a time
+        http.setExecutor(null);
+    }
+
+    public static ScoreServer start(int port, Path boardFile) throws IOException
+    {
+        // Headers and body go out as separate writes; without TCP_NODELAY each small
+        // response waits out the client's delayed ACK (~40 ms), capping a connection
+        // at a couple of dozen requests per second. Read once, when the server classes load.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        ScoreServer server = new ScoreServer(HttpServer.create(new InetSocketAddress(port), 0), boardFile);
+        server.http.start();
+        return server;
+    }
+
+    public int port()
+    {
+        return http.getAddress().getPort();
+    }
+
+    public void stop()
+    {
+        http.stop(0);
+        store.flush();
+    }
+
+    private void handleScores(HttpExchange ex) throws IOException
+    {
+        if (!"POST".equals(ex.getRequestMethod())) {
+            reply(ex, 405, "POST only");
+            return;
+        }
+        byte[] body;
+        try (InputStream raw = ex.getRequestBody();
+             InputStream in = "gzip".equalsIgnoreCase(ex.getRequestHeaders().getFirst("Content-Encoding"))
+                     ? new GZIPInputStream(raw) : raw) {
+            body = in.readAllBytes();
+        } catch (IOException e) {
+            reply(ex, 400, "bad body: " + e.getMessage());
+            return;
+        }
+
+        rebaseIfCompacted();
+        List<EscapeRoomGame.LeaderboardEntry> accepted = ingest(body);
+        board.addAll(accepted);
+        sinceRebase.addAll(accepted);
+        // Runs on the store's writer; the replies are a few bytes each
+        store.appendAll(accepted).whenComplete((ok, failure) -> {
+            try {
+                if (failure == null) {
+                    reply(ex, 200, "accepted " + accepted.size());
+                } else {
+                    // Resends are skipped as already seen and only answered once everything is stored
+                    reply(ex, 503, "not stored: " + failure.getMessage());
+                }
+            } catch (IOException e) {
+                // The client has gone; it resends and gets its answer then
+            }
+        });
+    }
+
+    // Swaps the board's base for the store's newest snapshot, keeping only the entries it lacks
+    private void rebaseIfCompacted()
+    {
+        LeaderboardStore.Generation latest = store.latest();
+        if (latest == null || latest == rebasedOn) {
+            return;
+        }
+        sinceRebase.subList(0, (int) (latest.appended - rebasedAt)).clear();
+        rebasedAt = latest.appended;
+        rebasedOn = latest;
+        board.reset(latest.snapshot, sinceRebase);
+    }
+
+    // Parses "client TAB seq TAB name TAB score" lines, dropping malformed ones and resends
+    private List<EscapeRoomGame.LeaderboardEntry> ingest(byte[] body)
+    {
+        ArrayList<EscapeRoomGame.LeaderboardEntry> out = new ArrayList<>();
+        String text = new String(body, StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) end = text.length();
+            int t1 = text.indexOf('\t', start);
+            int t2 = t1 < 0 ? -1 : text.indexOf('\t', t1 + 1);
+            int t3 = t2 < 0 ? -1 : text.indexOf('\t', t2 + 1);
+            if (t3 > 0 && t3 < end) {
+                try {
+                    String client = text.substring(start, t1);
+                    long seq = Long.parseLong(text, t1 + 1, t2, 10);
+                    int score = Integer.parseInt(text, t3 + 1, end, 10);
+                    Long last = lastSeq.get(client);
+                    if (last == null || seq > last) {
+                        lastSeq.put(client, seq);
+                        out.add(new EscapeRoomGame.LeaderboardEntry(text.substring(t2 + 1, t3), score));
+                    }
+                } catch (NumberFormatException e) {
+                    // Skip malformed line
+                }
+            }
+            start = end + 1;
+        }
+        return out;
+    }
+
+    private void handleTop(HttpExchange ex) throws IOException
+    {
+        int k = Math.min(queryInt(ex, "k", DEFAULT_TOP), ConcurrentLeaderboard.SNAPSHOT_SIZE);
+        ConcurrentLeaderboard.Snapshot snapshot = board.snapshot();
+        String etag = "\"" + bootId + "-" + snapshot.version() + "-" + k + "\"";
+        ex.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+            ex.sendResponseHeaders(304, -1);
+            ex.close();
+            return;
+        }
+        StringBuilder out = new StringBuilder();
+        for (EscapeRoomGame.LeaderboardEntry e : snapshot.top(k)) {
+            out.append(e.name).append('\t').append(e.score).append('\n');
+        }
+        reply(ex, 200, out.toString());
+    }
+
+    private void handleRank(HttpExchange ex) throws IOException
+    {
+        reply(ex, 200, Integer.toString(board.rankOf(queryInt(ex, "score", 0))));
+    }
+
+    private static int queryInt(HttpExchange ex, String key, int fallback)
+    {
+        String query = ex.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith(key + "=")) {
+                    try {
+                        return Integer.parseInt(pair.substring(key.length() + 1));
+                    } catch (NumberFormatException e) {
+                        return fallback;
+                    }
+                }
+            }
+        }
+        return fallback;
+    }
+
+    private static void reply(HttpExchange ex, int status, String text) throws IOException
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path file = Paths.get(args.length > 1 ? args[1] : DEFAULT_BOARD);
+        ScoreServer server = start(port, file);
+        System.out.println("Score server on port " + server.port() + ", board " + file.toAbsolutePath()
+                + " (" + server.board.snapshot().size() + " entries)");
+    }
+}
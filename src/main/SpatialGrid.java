@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * Uniform-grid broadphase over a set of points (entity centres).
+ *
+ * The grid is rebuilt every tick with a counting sort: put() records which cell
+ * each id falls in, build() turns the per-cell counts into offsets and lays the
+ * ids out cell by cell in one flat array. Rebuilding is O(n), queries only touch
+ * the cells overlapping the query box, and once the arrays have grown to the
+ * largest population seen nothing is allocated. Points outside the grid bounds
+ * are clamped into the border cells, so queries stay correct for them too.
+ */
+public class SpatialGrid
+{
+    private final double cellSize;
+    private double originX, originY;
+    private final int cols, rows;
+    private final int[] cellStart;
+    private final int[] cellCount;
+
+    private int[] itemCell = new int[64];
+    private int[] items = new int[64];
+    private int size;
+
+    private int[] results = new int[64];
+    private int resultCount;
+
+    public SpatialGrid(double width, double height, double cellSize)
+    {
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellStart = new int[cols * rows + 1];
+        this.cellCount = new int[cols * rows];
+    }
+
+    /** Moves the grid so it covers [x, x + width) x [y, y + height); takes effect from the next rebuild. */
+    public void setOrigin(double x, double y)
+    {
+        originX = x;
+        originY = y;
+    }
+
+    /** Starts a rebuild for ids 0 .. count-1. */
+    public void reset(int count)
+    {
+        if (itemCell.length < count) {
+            int grown = Math.max(count, itemCell.length * 2);
+            itemCell = new int[grown];
+            items = new int[grown];
+        }
+        Arrays.fill(cellCount, 0);
+        size = count;
+    }
+
+    public void put(int id, double x, double y)
+    {
+        int cell = row(y) * cols + col(x);
+        itemCell[id] = cell;
+        cellCount[cell]++;
+    }
+
+    /** Finishes a rebuild once every id has been put(). */
+    public void build()
+    {
+        int offset = 0;
+        for (int c = 0; c < cellCount.length; c++) {
+            cellStart[c] = offset;
+            offset += cellCount[c];
+        }
+        cellStart[cellCount.length] = offset;
+
+        // Reuse cellCount as a per-cell write cursor
+        Arrays.fill(cellCount, 0);
+        for (int id = 0; id < size; id++) {
+            int cell = itemCell[id];
+            items[cellStart[cell] + cellCount[cell]++] = id;
+        }
+    }
+
+    /**
+     * Collects the ids whose cell overlaps the given box. The result is a
+     * superset of the ids actually inside it; callers do the exact test.
+     * Returns the number of candidates, read back with result(i).
+     */
+    public int query(double minX, double minY, double maxX, double maxY)
+    {
+        resultCount = 0;
+        int c0 = col(minX), c1 = col(maxX);
+        int r0 = row(minY), r1 = row(maxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    if (resultCount == results.length) {
+                        results = Arrays.copyOf(results, results.length * 2);
+                    }
+                    results[resultCount++] = items[k];
+                }
+            }
+        }
+        return resultCount;
+    }
+
+    public int result(int i)
+    {
+        return results[i];
+    }
+
+    private int col(double x)
+    {
+        int c = (int) Math.floor((x - originX) / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(double y)
+    {
+        int r = (int) Math.floor((y - originY) / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+}
@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Packs many small sprites into a few shared textures.
+ *
+ * Every distinct Image drawn to a canvas is its own texture, so a frame full of
+ * enemies, projectiles and particles keeps switching textures. The atlas copies
+ * each sprite (already decoded at the size it is drawn at) into a shared page
+ * using simple shelf packing, and hands out Regions that draw with the
+ * source-rectangle drawImage overload. Sprites that do not fit a page get a page
+ * of their own.
+ */
+public class SpriteAtlas
+{
+    static final int PAGE_SIZE = 512;
+    // Transparent gap between sprites so filtering never samples a neighbour
+    private static final int GUTTER = 1;
+
+    private final Map<String, Region> regions;
+    private final int pageCount;
+
+    private SpriteAtlas(Map<String, Region> regions, int pageCount)
+    {
+        this.regions = regions;
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Part of an atlas page holding one sprite.
+     */
+    public static final class Region
+    {
+        private final Image page;
+        private final int sx, sy, sw, sh;
+
+        private Region(Image page, int sx, int sy, int sw, int sh)
+        {
+            this.page = page;
+            this.sx = sx;
+            this.sy = sy;
+            this.sw = sw;
+            this.sh = sh;
+        }
+
+        public void draw(GraphicsContext gc, double x, double y, double w, double h)
+        {
+            gc.drawImage(page, sx, sy, sw, sh, x, y, w, h);
+        }
+
+        public Image page()
+        {
+            return page;
+        }
+    }
+
+    /** Returns the region for a key, or null if no such sprite was packed. */
+    public Region get(String key)
+    {
+        return regions.get(key);
+    }
+
+    public int size()
+    {
+        return regions.size();
+    }
+
+    public int pageCount()
+    {
+        return pageCount;
+    }
+
+    /**
+     * Collects sprites and packs them when build() is called.
+     */
+    public static final class Builder
+    {
+        private final ArrayList<String> keys = new ArrayList<>();
+        private final ArrayList<Image> images = new ArrayList<>();
+
+        /** Adds a fully loaded image; images that failed to load are skipped. */
+        public Builder add(String key, Image image)
+        {
+            if (image != null && !image.isError() && image.getPixelReader() != null) {
+                keys.add(key);
+                images.add(image);
+            }
+            return this;
+        }
+
+        public SpriteAtlas build()
+        {
+            // Tallest first keeps the shelves tight
+            Integer[] order = new Integer[images.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(height(b), height(a)));
+
+            Map<String, Region> regions = new HashMap<>();
+            int pages = 0;
+            WritableImage page = null;
+            int shelfX = 0, shelfY = 0, shelfHeight = 0;
+
+            for (int i : order) {
+                Image image = images.get(i);
+                int w = width(i), h = height(i);
+                int cellW = w + GUTTER, cellH = h + GUTTER;
+
+                if (cellW > PAGE_SIZE || cellH > PAGE_SIZE) {
+                    WritableImage own = new WritableImage(w, h);
+                    own.getPixelWriter().setPixels(0, 0, w, h, image.getPixelReader(), 0, 0);
+                    regions.put(keys.get(i), new Region(own, 0, 0, w, h));
+                    pages++;
+                    continue;
+                }
+
+                if (page != null && shelfX + cellW > PAGE_SIZE) {
+                    shelfX = 0;
+                    shelfY += shelfHeight;
+                    shelfHeight = 0;
+                }
+                if (page == null || shelfY + cellH > PAGE_SIZE) {
+                    page = new WritableImage(PAGE_SIZE, PAGE_SIZE);
+                    pages++;
+                    shelfX = 0;
+                    shelfY = 0;
+                    shelfHeight = 0;
+                }
+
+                PixelReader reader = image.getPixelReader();
+                page.getPixelWriter().setPixels(shelfX, shelfY, w, h, reader, 0, 0);
+                regions.put(keys.get(i), new Region(page, shelfX, shelfY, w, h));
+                shelfX += cellW;
+                shelfHeight = Math.max(shelfHeight, cellH);
+            }
+            return new SpriteAtlas(regions, pages);
+        }
+
+        private int width(int i)
+        {
+            return (int) images.get(i).getWidth();
+        }
+
+        private int height(int i)
+        {
+            return (int) images.get(i).getHeight();
+        }
+    }
+}
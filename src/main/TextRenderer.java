@@ -0,0 +1,60 @@
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+
+/**
+ * Text drawing helpers for the HUD and the game-over / level-complete overlays.
+ *
+ * Fonts are interned, so callers resolve them once and keep the instance. Text
+ * widths are measured with a single reusable Text node and remembered per
+ * (font, string), so centring a line that was drawn before is a map lookup
+ * rather than a new scene-graph node.
+ */
+public class TextRenderer
+{
+    // Strings that come and go (scores, names) should not grow the cache forever
+    private static final int MAX_WIDTHS_PER_FONT = 256;
+
+    private final Map<String, Font> fonts = new HashMap<>();
+    private final Map<Font, HashMap<String, Double>> widths = new IdentityHashMap<>();
+    private final Text measure = new Text();
+
+    /**
+     * Returns the shared Font for this family, weight and size. Meant to be
+     * called at setup time; the result should be kept, not looked up per frame.
+     */
+    public Font font(String family, FontWeight weight, double size)
+    {
+        String key = family + '|' + weight + '|' + size;
+        return fonts.computeIfAbsent(key, k -> Font.font(family, weight, size));
+    }
+
+    public double width(Font font, String text)
+    {
+        HashMap<String, Double> cache = widths.computeIfAbsent(font, f -> new HashMap<>());
+        Double cached = cache.get(text);
+        if (cached != null) {
+            return cached;
+        }
+
+        measure.setFont(font);
+        measure.setText(text);
+        double width = measure.getLayoutBounds().getWidth();
+        if (cache.size() >= MAX_WIDTHS_PER_FONT) {
+            cache.clear();
+        }
+        cache.put(text, width);
+        return width;
+    }
+
+    public void drawCentered(GraphicsContext gc, Font font, String text, double x, double y)
+    {
+        gc.setFont(font);
+        gc.fillText(text, x - width(font, text) / 2, y);
+    }
+}
@@ -0,0 +1,269 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Streams a wide level's enemies and colour blocks in and out around the camera.
+ *
+ * The world is cut into CHUNK_WIDTH-wide columns. Chunks within one chunk of
+ * the view are resident: their entities are live objects in the game's lists
+ * and are simulated and drawn. Everything further away is serialized into a
+ * compact byte[] per chunk and dropped from the lists, so the live entity count
+ * (and with it update and draw cost) depends on the view, not on level length.
+ * When the view moves on, newly resident chunks are decoded and appended to the
+ * lists, and chunks that fell out of range are written back.
+ *
+ * Entities are assigned to the chunk they are in when their chunk is evicted;
+ * membership is only re-checked when the resident range changes. Platforms are
+ * not streamed: they are small, static and already indexed per level, and
+ * rendering culls them.
+ */
+final class WorldChunks
+{
+    static final int CHUNK_WIDTH = 600;
+    // Resident chunks reach this far past each edge of the view
+    static final int MARGIN = CHUNK_WIDTH;
+
+    // Serialized record sizes
+    private static final int ENEMY_BYTES = 8 * 3 + 4 + 1;
+    private static final int BLOCK_BYTES = 4 * 4 + 1 + 1 + 4;
+
+    private final EscapeRoomGame game;
+    private int chunkCount;
+    // Null when the chunk is resident or holds nothing
+    private byte[][] stored = new byte[0][];
+    private int firstResident, lastResident;
+
+    WorldChunks(EscapeRoomGame game)
+    {
+        this.game = game;
+    }
+
+    /** Starts a level: every chunk counts as resident until the first stream(). */
+    void reset(int worldWidth)
+    {
+        chunkCount = Math.max(1, (worldWidth + CHUNK_WIDTH - 1) / CHUNK_WIDTH);
+        stored = new byte[chunkCount][];
+        firstResident = 0;
+        lastResident = chunkCount - 1;
+    }
+
+    /** World x where the resident range starts, for broadphase grids. */
+    double residentLeft()
+    {
+        return firstResident * (double) CHUNK_WIDTH;
+    }
+
+    int chunkCount()
+    {
+        return chunkCount;
+    }
+
+    int residentChunks()
+    {
+        return lastResident - firstResident + 1;
+    }
+
+    /** Bytes held by serialized chunks. */
+    long storedBytes()
+    {
+        long total = 0;
+        for (byte[] chunk : stored) {
+            if (chunk != null) total += chunk.length;
+        }
+        return total;
+    }
+
+    /**
+     * Copies the chunk layout into a snapshot. Stored chunks are shared, not
+     * copied: a chunk's bytes are replaced whole when it changes, never edited.
+     */
+    void saveTo(GameSnapshot s)
+    {
+        s.ensureCapacity(0, 0, 0, chunkCount);
+        System.arraycopy(stored, 0, s.chunks, 0, chunkCount);
+        s.chunkCount = chunkCount;
+        s.firstResident = firstResident;
+        s.lastResident = lastResident;
+    }
+
+    void loadFrom(GameSnapshot s)
+    {
+        if (stored.length != s.chunkCount) {
+            stored = new byte[s.chunkCount][];
+        }
+        System.arraycopy(s.chunks, 0, stored, 0, s.chunkCount);
+        chunkCount = s.chunkCount;
+        firstResident = s.firstResident;
+        lastResident = s.lastResident;
+    }
+
+    /** Makes the chunks around the given view resident and stores the rest. */
+    void stream(double viewLeft, double viewRight)
+    {
+        int first = chunkOf(viewLeft - MARGIN);
+        int last = chunkOf(viewRight + MARGIN);
+        if (first == firstResident && last == lastResident) {
+            return;
+        }
+
+        evictOutside(first, last);
+        for (int c = first; c <= last; c++) {
+            if (c < firstResident || c > lastResident) {
+                restore(c);
+            }
+        }
+        firstResident = first;
+        lastResident = last;
+    }
+
+    private int chunkOf(double x)
+    {
+        int c = (int) Math.floor(x / CHUNK_WIDTH);
+        return c < 0 ? 0 : (c >= chunkCount ? chunkCount - 1 : c);
+    }
+
+    // Moves live entities outside [first, last] into their chunks' stored bytes
+    private void evictOutside(int first, int last)
+    {
+        ArrayList<ArrayList<EscapeRoomGame.Enemy>> enemiesOut = null;
+        ArrayList<ArrayList<EscapeRoomGame.ColoredBlock>> blocksOut = null;
+        int[] touched = new int[0];
+
+        ArrayList<EscapeRoomGame.Enemy> enemies = game.enemies;
+        int alive = 0;
+        for (int i = 0; i < enemies.size(); i++) {
+            EscapeRoomGame.Enemy e = enemies.get(i);
+            int c = chunkOf(e.x);
+            if (c >= first && c <= last) {
+                enemies.set(alive++, e);
+                continue;
+            }
+            if (enemiesOut == null) {
+                enemiesOut = buckets();
+                blocksOut = buckets();
+            }
+            enemiesOut.get(c).add(e);
+            touched = mark(touched, c);
+        }
+        truncate(enemies, alive);
+
+        ArrayList<EscapeRoomGame.ColoredBlock> blocks = game.coloredBlocks;
+        alive = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            EscapeRoomGame.ColoredBlock b = blocks.get(i);
+            int c = chunkOf(b.x);
+            if (c >= first && c <= last) {
+                blocks.set(alive++, b);
+                continue;
+            }
+            if (blocksOut == null) {
+                enemiesOut = buckets();
+                blocksOut = buckets();
+            }
+            blocksOut.get(c).add(b);
+            touched = mark(touched, c);
+        }
+        truncate(blocks, alive);
+
+        for (int c : touched) {
+            if (stored[c] != null) {
+                // Something wandered into a chunk that was already stored; merge with it
+                decodeInto(stored[c], enemiesOut.get(c), blocksOut.get(c), true);
+            }
+            stored[c] = encode(enemiesOut.get(c), blocksOut.get(c));
+            game.releaseEnemies(enemiesOut.get(c));
+            game.releaseBlocks(blocksOut.get(c));
+        }
+    }
+
+    private void restore(int c)
+    {
+        if (stored[c] != null) {
+            decodeInto(stored[c], game.enemies, game.coloredBlocks, false);
+            stored[c] = null;
+        }
+    }
+
+    private static byte[] encode(ArrayList<EscapeRoomGame.Enemy> enemies, ArrayList<EscapeRoomGame.ColoredBlock> blocks)
+    {
+        ByteBuffer out = ByteBuffer.allocate(8 + enemies.size() * ENEMY_BYTES + blocks.size() * BLOCK_BYTES);
+        out.putInt(enemies.size());
+        for (EscapeRoomGame.Enemy e : enemies) {
+            out.putDouble(e.x).putDouble(e.y).putDouble(e.vx);
+            out.putInt(e.health);
+            out.put((byte) e.type.ordinal());
+        }
+        out.putInt(blocks.size());
+        for (EscapeRoomGame.ColoredBlock b : blocks) {
+            out.putInt(b.x).putInt(b.y).putInt(b.width).putInt(b.height);
+            out.put((byte) b.color.ordinal());
+            out.put((byte) (b.absorbed ? 1 : 0));
+            out.putInt(b.pulseFrame);
+        }
+        return out.array();
+    }
+
+    // Rebuilds a chunk's entities and adds them to the lists (in front when merging, to keep stored order)
+    private void decodeInto(byte[] data, ArrayList<EscapeRoomGame.Enemy> enemies,
+                            ArrayList<EscapeRoomGame.ColoredBlock> blocks, boolean prepend)
+    {
+        Element[] elements = Element.values();
+        PowerColor[] colors = PowerColor.values();
+        ByteBuffer in = ByteBuffer.wrap(data);
+
+        int n = in.getInt();
+        ArrayList<EscapeRoomGame.Enemy> decodedEnemies = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double x = in.getDouble(), y = in.getDouble(), vx = in.getDouble();
+            int health = in.getInt();
+            EscapeRoomGame.Enemy e = game.obtainEnemy(x, y, elements[in.get()]);
+            e.vx = vx;
+            e.health = health;
+            decodedEnemies.add(e);
+        }
+        n = in.getInt();
+        ArrayList<EscapeRoomGame.ColoredBlock> decodedBlocks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int x = in.getInt(), y = in.getInt(), w = in.getInt(), h = in.getInt();
+            EscapeRoomGame.ColoredBlock b = game.obtainBlock(x, y, w, h, colors[in.get()]);
+            b.absorbed = in.get() != 0;
+            b.pulseFrame = in.getInt();
+            decodedBlocks.add(b);
+        }
+
+        if (prepend) {
+            enemies.addAll(0, decodedEnemies);
+            blocks.addAll(0, decodedBlocks);
+        } else {
+            enemies.addAll(decodedEnemies);
+            blocks.addAll(decodedBlocks);
+        }
+    }
+
+    private <T> ArrayList<ArrayList<T>> buckets()
+    {
+        ArrayList<ArrayList<T>> b = new ArrayList<>(chunkCount);
+        for (int c = 0; c < chunkCount; c++) {
+            b.add(new ArrayList<>());
+        }
+        return b;
+    }
+
+    private static int[] mark(int[] touched, int c)
+    {
+        for (int t : touched) {
+            if (t == c) return touched;
+        }
+        int[] grown = Arrays.copyOf(touched, touched.length + 1);
+        grown[touched.length] = c;
+        return grown;
+    }
+
+    private static void truncate(ArrayList<?> list, int size)
+    {
+        for (int i = list.size() - 1; i >= size; i--) {
+            list.remove(i);
+        }
+    }
+}